@@ -0,0 +1,101 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.dom4j.DocumentException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures formatting a batch of 10,000 small documents, comparing the writer reused by {@link FormatUtil} for its
+ * thread's buffer with a writer, encoder and buffers created for every document. Run with {@code -prof gc} to see
+ * the allocations per document.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OperationsPerInvocation(BatchFormatBenchmark.FILES)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+public class BatchFormatBenchmark {
+
+    static final int FILES = 10_000;
+
+    private final byte[][] documents = new byte[FILES][];
+    private XmlOutputFormat fmt;
+    private final OutputBuffer out = new OutputBuffer();
+    // Hides the buffer from FormatUtil, which then creates a new writer for every document
+    private final OutputStream unbuffered = new OutputStream() {
+        @Override
+        public void write(final int b) {
+            out.write(b);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            out.write(b, off, len);
+        }
+    };
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < FILES; i++) {
+            // Between 0.3 and 2 KB each, only a few distinct documents as the content does not matter here
+            documents[i] = Corpus.generate(5 + i % 16 * 2, 3, i % 2 == 0 ? Corpus.Shape.TEXT : Corpus.Shape.ATTRIBUTES);
+        }
+        fmt = new XmlOutputFormat();
+        fmt.setIndentSize(2);
+    }
+
+    @Benchmark
+    public int newWriterPerFile() throws DocumentException, IOException {
+        int size = 0;
+        for (final byte[] document : documents) {
+            out.reset();
+            FormatUtil.format(new ByteArrayInputStream(document), unbuffered, fmt);
+            size += out.size();
+        }
+        return size;
+    }
+
+    @Benchmark
+    public int reusedWriter() throws DocumentException, IOException {
+        int size = 0;
+        for (final byte[] document : documents) {
+            out.reset();
+            FormatUtil.format(new ByteArrayInputStream(document), out, fmt);
+            size += out.size();
+        }
+        return size;
+    }
+}
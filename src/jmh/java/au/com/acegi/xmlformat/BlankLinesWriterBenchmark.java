@@ -0,0 +1,117 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.dom4j.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the text trimming of {@link BlankLinesWriter}, isolated from parsing.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+public class BlankLinesWriterBenchmark {
+
+    /** Number of words in the text. */
+    @Param({ "10", "1000" })
+    private int words;
+
+    /** One line in this many is followed by blank lines. */
+    @Param({ "1", "8" })
+    private int blankLineEvery;
+
+    private String text;
+    private BlackholeWriter writer;
+
+    @Setup
+    public void setUp(final Blackhole blackhole) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            builder.append("  word").append(i).append(" \t");
+            if (i % blankLineEvery == 0) {
+                builder.append("\n  \n\n");
+            } else if (i % 3 == 0) {
+                builder.append('\n');
+            }
+        }
+        text = builder.toString();
+        writer = new BlackholeWriter(blackhole);
+    }
+
+    @Benchmark
+    public int writeTrimmed() throws IOException {
+        return BlankLinesWriter.writeTrimmed(writer, text, Node.ELEMENT_NODE);
+    }
+
+    /**
+     * Writer consuming everything written without storing it.
+     */
+    private static final class BlackholeWriter extends Writer {
+        private final Blackhole blackhole;
+
+        BlackholeWriter(final Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void close() {
+            // Nothing to release
+        }
+
+        @Override
+        public void flush() {
+            // Nothing is buffered
+        }
+
+        @Override
+        public void write(final char[] cbuf, final int off, final int len) {
+            blackhole.consume(cbuf);
+            blackhole.consume(len);
+        }
+
+        @Override
+        public void write(final String str) {
+            blackhole.consume(str);
+        }
+
+        @Override
+        public void write(final String str, final int off, final int len) {
+            blackhole.consume(str);
+            blackhole.consume(len);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the ways of detecting unchanged content: hashing with CRC32 or xxHash64, either in memory or from a file,
+ * and comparing two identical contents byte for byte, which is the worst case of a comparison.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+public class ContentComparisonBenchmark {
+
+    @Param({ "1024", "1048576", "104857600" })
+    private int bytes;
+
+    private byte[] content;
+    private byte[] copy;
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        content = new byte[bytes];
+        new Random(bytes).nextBytes(content);
+        copy = content.clone();
+        file = File.createTempFile("content", ".bin");
+        Files.write(file.toPath(), content);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Benchmark
+    public long crc32() {
+        return ContentHash.CRC32.hash(ByteBuffer.wrap(content));
+    }
+
+    @Benchmark
+    public long crc32File() throws IOException {
+        return IOUtil.hash(file, ContentHash.CRC32);
+    }
+
+    @Benchmark
+    public long xxHash64() {
+        return ContentHash.XXHASH64.hash(ByteBuffer.wrap(content));
+    }
+
+    @Benchmark
+    public long xxHash64File() throws IOException {
+        return IOUtil.hash(file, ContentHash.XXHASH64);
+    }
+
+    @Benchmark
+    public boolean sameContent() {
+        return IOUtil.sameContent(ByteBuffer.wrap(content), ByteBuffer.wrap(copy));
+    }
+
+    @Benchmark
+    public boolean sameContentLoop() {
+        // The comparison used before
+        for (int i = 0; i < content.length; i++) {
+            if (content[i] != copy[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
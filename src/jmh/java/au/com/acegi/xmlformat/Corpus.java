@@ -0,0 +1,115 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Random;
+
+/**
+ * Generates synthetic, badly formatted documents for the benchmarks.
+ */
+final class Corpus {
+
+    /**
+     * The kind of content the generated documents are made of.
+     */
+    enum Shape {
+        /** Elements holding several words of text, separated by irregular whitespace and blank lines. */
+        TEXT,
+        /** Empty elements holding several attributes. */
+        ATTRIBUTES
+    }
+
+    private static final int ATTRIBUTES = 6;
+    private static final String[] WORDS = {"lorem", "ipsum", "dolor", "sit", "amet", "&amp;", "consectetur",
+        "adipiscing", "elit", "&lt;sed&gt;"};
+
+    private Corpus() {
+    }
+
+    /**
+     * Generates a document.
+     *
+     * @param elements
+     *            approximate number of elements in the document
+     * @param depth
+     *            maximum nesting depth of the elements
+     * @param shape
+     *            kind of content of the elements
+     *
+     * @return the UTF-8 encoded document
+     */
+    static byte[] generate(final int elements, final int depth, final Shape shape) {
+        // Fixed seed so every run and every fork measures the same document
+        final Random random = new Random(elements * 31L + depth);
+        final StringBuilder xml = new StringBuilder(elements * 64);
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<root>");
+
+        int open = 0;
+        for (int i = 0; i < elements; i++) {
+            whitespace(xml, random);
+            if (open < depth - 1 && random.nextInt(3) == 0) {
+                xml.append("<group id=\"").append(i).append("\">");
+                open++;
+                continue;
+            }
+            if (open > 0 && random.nextInt(4) == 0) {
+                xml.append("</group>");
+                open--;
+                continue;
+            }
+            if (shape == Shape.TEXT) {
+                xml.append("<item>");
+                for (int w = random.nextInt(12); w >= 0; w--) {
+                    xml.append(WORDS[random.nextInt(WORDS.length)]);
+                    whitespace(xml, random);
+                }
+                xml.append("</item>");
+            } else {
+                xml.append("<item");
+                for (int a = 0; a < ATTRIBUTES; a++) {
+                    xml.append(" attribute").append(a).append("=\"").append(WORDS[random.nextInt(WORDS.length)])
+                            .append('"');
+                }
+                xml.append("/>");
+            }
+        }
+        while (open-- > 0) {
+            xml.append("</group>");
+        }
+        xml.append("\n</root>\n");
+        return xml.toString().getBytes(UTF_8);
+    }
+
+    private static void whitespace(final StringBuilder xml, final Random random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                xml.append(' ');
+                break;
+            case 1:
+                xml.append("\n    ");
+                break;
+            case 2:
+                xml.append("\n\n\n  \t");
+                break;
+            default:
+                break;
+        }
+    }
+}
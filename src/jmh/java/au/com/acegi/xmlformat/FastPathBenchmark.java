@@ -0,0 +1,88 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.dom4j.DocumentException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures checking an already formatted document, comparing {@link FormatVerifier} with a full format round trip.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+public class FastPathBenchmark {
+
+    @Param({ "100", "10000" })
+    private int elements;
+
+    @Param({ "TEXT", "ATTRIBUTES" })
+    private String shape;
+
+    private byte[] document;
+    private XmlOutputFormat fmt;
+    private final OutputBuffer out = new OutputBuffer();
+
+    @Setup
+    public void setUp() throws DocumentException, IOException {
+        fmt = new XmlOutputFormat();
+        fmt.setIndentSize(2);
+        fmt.setPadText(false);
+        document = Corpus.generate(elements, 8, Corpus.Shape.valueOf(shape));
+        // Twice, as elements holding only whitespace are first written with an end tag, then as empty elements
+        for (int i = 0; i < 2; i++) {
+            final ByteArrayOutputStream formatted = new ByteArrayOutputStream();
+            FormatUtil.format(new ByteArrayInputStream(document), formatted, fmt);
+            document = formatted.toByteArray();
+        }
+        if (!FormatVerifier.isFormatted(ByteBuffer.wrap(document), fmt)) {
+            throw new IllegalStateException("Formatted document not proven formatted");
+        }
+    }
+
+    @Benchmark
+    public boolean fullFormat() throws DocumentException, IOException {
+        out.reset();
+        FormatUtil.format(new ByteArrayInputStream(document), out, fmt);
+        return out.sameAs(document);
+    }
+
+    @Benchmark
+    public boolean verifier() {
+        return FormatVerifier.isFormatted(ByteBuffer.wrap(document), fmt);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the discovery of files to format in a synthetic project tree.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+public class FindBenchmark {
+
+    /** Number of subdirectories in every directory. */
+    @Param({ "4", "8" })
+    private int width;
+
+    /** Depth of the directory tree. */
+    @Param({ "3", "4" })
+    private int depth;
+
+    /** Number of XML files (and as many other files) in every directory. */
+    @Param({ "5" })
+    private int files;
+
+    /** Whether directory listings cached by earlier invocations are reused, as in later modules of a reactor. */
+    @Param({ "false", "true" })
+    private boolean cachedListings;
+
+    private Path base;
+    private XmlFormatPlugin plugin;
+
+    @Setup
+    public void setUp() throws IOException {
+        base = Files.createTempDirectory("xml-format-benchmark");
+        populate(base, depth);
+        final Path target = base.resolve("target");
+        populate(Files.createDirectories(target), 2);
+
+        plugin = new XmlFormatPlugin();
+        plugin.setBaseDirectory(base.toFile());
+        plugin.setExcludes("**/d0/d1/**");
+        plugin.setIncludes("**/*.xml");
+        plugin.setTargetDirectory(target.toFile());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(base)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void clearCache() {
+        if (!cachedListings) {
+            FileFinder.clearCache();
+        }
+    }
+
+    @Benchmark
+    public List<File> find() throws MojoExecutionException {
+        return plugin.findFiles();
+    }
+
+    private void populate(final Path dir, final int levels) throws IOException {
+        for (int i = 0; i < files; i++) {
+            Files.createFile(dir.resolve("file" + i + ".xml"));
+            Files.createFile(dir.resolve("file" + i + ".txt"));
+        }
+        if (levels > 0) {
+            for (int i = 0; i < width; i++) {
+                populate(Files.createDirectory(dir.resolve("d" + i)), levels - 1);
+            }
+        }
+        // Listings of directories modified moments ago are never cached
+        Files.setLastModifiedTime(dir, FileTime.fromMillis(System.currentTimeMillis() - 60_000L));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.dom4j.DocumentException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link FormatUtil#format} over synthetic documents.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+public class FormatBenchmark {
+
+    @Param({ "100", "10000" })
+    private int elements;
+
+    @Param({ "2", "32" })
+    private int depth;
+
+    @Param({ "TEXT", "ATTRIBUTES" })
+    private String shape;
+
+    @Param({ "false", "true" })
+    private boolean keepBlankLines;
+
+    @Param({ "false", "true" })
+    private boolean trimText;
+
+    @Param({ "DOM", "STREAMING" })
+    private FormatEngine engine;
+
+    private byte[] document;
+    private XmlOutputFormat fmt;
+    private final OutputBuffer out = new OutputBuffer();
+
+    @Setup
+    public void setUp() {
+        document = Corpus.generate(elements, depth, Corpus.Shape.valueOf(shape));
+        fmt = new XmlOutputFormat();
+        fmt.setEngine(engine);
+        fmt.setIndentSize(2);
+        fmt.setKeepBlankLines(keepBlankLines);
+        fmt.setTrimText(trimText);
+    }
+
+    @Benchmark
+    public int format() throws DocumentException, IOException {
+        out.reset();
+        FormatUtil.format(new ByteArrayInputStream(document), out, fmt);
+        return out.size();
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.dom4j.DocumentException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures reading multi-megabyte files, comparing memory mapped access with the stream based reads used before.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+public class LargeFileBenchmark {
+
+    @Param({ "4", "32" })
+    private int megabytes;
+
+    private File file;
+    private XmlOutputFormat fmt;
+
+    @Setup
+    public void setUp() throws IOException {
+        // Roughly 110 bytes per element
+        final byte[] document = Corpus.generate(megabytes * 9_500, 8, Corpus.Shape.TEXT);
+        file = File.createTempFile("large", ".xml");
+        Files.write(file.toPath(), document);
+        fmt = new XmlOutputFormat();
+        fmt.setIndentSize(2);
+        fmt.setInMemoryThreshold(0);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Benchmark
+    public long hashFile() throws IOException {
+        return IOUtil.hash(file, ContentHash.CRC32);
+    }
+
+    @Benchmark
+    public long hashStream() throws IOException {
+        // The implementation before files were mapped
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            return IOUtil.hash(in, ContentHash.CRC32);
+        }
+    }
+
+    @Benchmark
+    public boolean needsFormatting() throws DocumentException, IOException {
+        return FormatUtil.needsFormatting(file, fmt);
+    }
+}
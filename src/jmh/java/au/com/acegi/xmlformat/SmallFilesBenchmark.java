@@ -0,0 +1,98 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.dom4j.Document;
+import org.dom4j.DocumentException;
+import org.dom4j.io.SAXReader;
+import org.dom4j.io.XMLWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.InputSource;
+
+/**
+ * Measures the per-file overhead of formatting many small documents, the size of typical Maven poms, comparing the
+ * parser reused by {@link FormatUtil#format} with a parser created for every file.
+ */
+@BenchmarkMode({ Mode.AverageTime, Mode.SampleTime })
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OperationsPerInvocation(SmallFilesBenchmark.FILES)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+public class SmallFilesBenchmark {
+
+    static final int FILES = 16;
+
+    private final byte[][] documents = new byte[FILES][];
+    private XmlOutputFormat fmt;
+    private final OutputBuffer out = new OutputBuffer();
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < FILES; i++) {
+            // Between 1 and 5 KB each
+            documents[i] = Corpus.generate(25 + i * 8, 4, i % 2 == 0 ? Corpus.Shape.TEXT : Corpus.Shape.ATTRIBUTES);
+        }
+        fmt = new XmlOutputFormat();
+        fmt.setIndentSize(2);
+    }
+
+    @Benchmark
+    public int newParserPerFile() throws DocumentException, IOException {
+        int size = 0;
+        for (final byte[] document : documents) {
+            out.reset();
+            // The implementation before parsers were reused
+            final SAXReader reader = new SAXReader();
+            reader.setEntityResolver((publicId, systemId) -> new InputSource(new StringReader("")));
+            final Document xmlDoc = reader.read(new ByteArrayInputStream(document));
+            final XMLWriter xmlWriter = new XMLWriter(out, fmt);
+            xmlWriter.write(xmlDoc);
+            xmlWriter.flush();
+            size += out.size();
+        }
+        return size;
+    }
+
+    @Benchmark
+    public int reusedParser() throws DocumentException, IOException {
+        int size = 0;
+        for (final byte[] document : documents) {
+            out.reset();
+            FormatUtil.format(new ByteArrayInputStream(document), out, fmt);
+            size += out.size();
+        }
+        return size;
+    }
+}
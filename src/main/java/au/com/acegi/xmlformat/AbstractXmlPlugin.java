@@ -17,17 +17,37 @@
  */
 package au.com.acegi.xmlformat;
 
+import au.com.acegi.xmlformat.BuildReport.Entry;
+import au.com.acegi.xmlformat.BuildReport.Outcome;
+
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.plugins.annotations.Parameter;
-import org.codehaus.plexus.util.DirectoryScanner;
+import org.apache.maven.project.MavenProject;
 import org.dom4j.DocumentException;
 
 /**
@@ -36,6 +56,16 @@ import org.dom4j.DocumentException;
 @SuppressWarnings("DesignForExtension")
 public abstract class AbstractXmlPlugin extends AbstractMojo {
 
+    /**
+     * Log of the file currently processed by a worker thread, replayed once all earlier files have been reported.
+     */
+    private static final ThreadLocal<BufferedLog> TASK_LOG = new ThreadLocal<>();
+
+    /**
+     * How long files still being processed once processing stopped are waited for, before the caches are saved.
+     */
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
     /**
      * Quote character to use when writing attributes.
      */
@@ -49,6 +79,27 @@ public abstract class AbstractXmlPlugin extends AbstractMojo {
     @Parameter(defaultValue = ".", readonly = true, required = true, property = "project.basedir")
     private File baseDirectory;
 
+    /**
+     * Directory holding the incremental cache of files found to be correctly formatted by previous executions.
+     */
+    @Parameter(property = "xml-format.cacheDirectory", defaultValue = "${project.build.directory}/xml-format-cache")
+    private File cacheDirectory;
+
+    /**
+     * Only process the files changed in the Git repository holding the project, still honouring the includes and
+     * excludes. Valid values are:
+     * <ul>
+     * <li><b>"staged"</b> - Files staged in the index that differ from <code>HEAD</code>, as checked by pre-commit
+     * hooks</li>
+     * <li>A revision such as <b>"origin/main"</b> or a commit id - Files of the working tree, committed or not, that
+     * differ from the common ancestor of this revision and <code>HEAD</code>, as checked for pull requests</li>
+     * </ul>
+     * The repository is read directly, without network access or a <code>git</code> executable. All files are
+     * processed when empty.
+     */
+    @Parameter(property = "xml-format.changedSince")
+    private String changedSince;
+
     /**
      * The encoding format.
      */
@@ -56,6 +107,18 @@ public abstract class AbstractXmlPlugin extends AbstractMojo {
     @SuppressWarnings("PMD.ImmutableField")
     private String encoding = "UTF-8";
 
+    /**
+     * The engine used to format documents. Valid values are:
+     * <ul>
+     * <li><b>"DOM"</b> - Build the complete document in memory before writing it</li>
+     * <li><b>"STREAMING"</b> - Write the document while parsing it, using constant memory regardless of its size</li>
+     * </ul>
+     * Both engines produce identical output.
+     */
+    @Parameter(property = "xml-format.engine", defaultValue = "DOM")
+    @SuppressWarnings("PMD.ImmutableField")
+    private FormatEngine engine = FormatEngine.DOM;
+
     /**
      * A set of file patterns that allow you to exclude certain files/folders from the formatting. In addition to these
      * exclusions, the project build directory (typically <code>target</code>) is always excluded if skipTargetFolder is
@@ -70,6 +133,13 @@ public abstract class AbstractXmlPlugin extends AbstractMojo {
     @Parameter(property = "expandEmptyElements", defaultValue = "false")
     private boolean expandEmptyElements;
 
+    /**
+     * Whether reformatted files are flushed to the storage device before the next file is processed, so they survive a
+     * crash or power loss. Disabling it speeds up builds on disposable machines such as CI agents.
+     */
+    @Parameter(property = "xml-format.fsync", defaultValue = "true")
+    private boolean fsync = true;
+
     /**
      * A set of file patterns that dictate which files should be included in the formatting with each file pattern being
      * relative to the base directory.
@@ -77,6 +147,13 @@ public abstract class AbstractXmlPlugin extends AbstractMojo {
     @Parameter(property = "includes")
     private String[] includes;
 
+    /**
+     * Files up to this size (in bytes) are formatted and compared entirely in memory. Larger files are streamed through
+     * a temporary file to bound memory use.
+     */
+    @Parameter(property = "xml-format.inMemoryThreshold", defaultValue = "8388608")
+    private long inMemoryThreshold = XmlOutputFormat.DEFAULT_IN_MEMORY_THRESHOLD;
+
     /**
      * Indicates the number of spaces to apply when indenting.
      */
@@ -144,6 +221,75 @@ public abstract class AbstractXmlPlugin extends AbstractMojo {
     @Parameter(property = "padText", defaultValue = "false")
     private boolean padText;
 
+    /**
+     * Whether reformatted files keep their original modification time.
+     */
+    @Parameter(property = "xml-format.preserveTimestamps", defaultValue = "false")
+    private boolean preserveTimestamps;
+
+    /**
+     * Files larger than this size (in bytes) are skipped with a warning. Zero processes files of any size: those whose
+     * document tree would not fit in the heap are then formatted by the streaming engine, which produces the same
+     * output in constant memory.
+     */
+    @Parameter(property = "xml-format.maxFileSize", defaultValue = "0")
+    private long maxFileSize;
+
+    /**
+     * The maximum number of files remembered as correctly formatted in memory, across all executions of the plugin in
+     * the same Maven process. Long-lived processes such as the Maven daemon then skip unchanged files after a single
+     * file system <code>stat</code>. Zero disables the memory cache. It is also disabled when <code>useCache</code> is
+     * false.
+     */
+    @Parameter(property = "xml-format.memoryCacheSize", defaultValue = "50000")
+    private int memoryCacheSize = ResultCache.DEFAULT_CAPACITY;
+
+    /**
+     * The projects of the reactor, processed together by aggregator goals.
+     */
+    @Parameter(defaultValue = "${reactorProjects}", readonly = true)
+    private List<MavenProject> reactorProjects;
+
+    /**
+     * File receiving the timings of every processed file, such as
+     * <code>${project.build.directory}/xml-format-report.json</code>. The report is written as CSV when the file name
+     * ends with <code>.csv</code>, and as JSON otherwise. No report is written when empty.
+     */
+    @Parameter(property = "xml-format.reportFile")
+    private File reportFile;
+
+    /**
+     * The order in which files are processed when using several threads. Valid values are:
+     * <ul>
+     * <li><b>"DISCOVERY"</b> - The order in which files are found</li>
+     * <li><b>"SIZE"</b> - Largest files first</li>
+     * <li><b>"HISTORY"</b> - Files that took longest during the previous execution first, as recorded in the
+     * <code>cacheDirectory</code>, with the other files estimated from their size</li>
+     * </ul>
+     * Starting the longest files first lets the small files fill the gaps, instead of a large file found last keeping
+     * the execution running on a single thread. Files are reported in the order they are found whatever the
+     * schedule.
+     */
+    @Parameter(property = "xml-format.schedule", defaultValue = "HISTORY")
+    @SuppressWarnings("PMD.ImmutableField")
+    private Schedule schedule = Schedule.HISTORY;
+
+    /**
+     * A directory holding the hashes of the documents known to be correctly formatted, such as
+     * <code>${user.home}/.m2/xml-format-cache</code>. Unlike the <code>cacheDirectory</code>, it does not depend on
+     * the location of files, so it can be shared by all branches and checkouts, and persisted between CI jobs. Several
+     * builds can use it at the same time. Disabled by default.
+     */
+    @Parameter(property = "xml-format.sharedCacheDirectory")
+    private File sharedCacheDirectory;
+
+    /**
+     * The maximum number of documents recorded in the <code>sharedCacheDirectory</code>, beyond which the least
+     * recently used are forgotten.
+     */
+    @Parameter(property = "xml-format.sharedCacheSize", defaultValue = "100000")
+    private int sharedCacheSize = SharedCache.DEFAULT_CAPACITY;
+
     /**
      * Skip XML formatting.
      */
@@ -187,6 +333,54 @@ public abstract class AbstractXmlPlugin extends AbstractMojo {
     @Parameter(property = "keepBlankLines", defaultValue = "false")
     private boolean keepBlankLines;
 
+    /**
+     * The number of threads used to process files. Either a plain number, or a multiple of the available processors
+     * suffixed with <code>C</code> (for example <code>1C</code> or <code>0.5C</code>), as accepted by Maven's
+     * <code>-T</code> option.
+     */
+    @Parameter(property = "xml-format.threads", defaultValue = "1")
+    @SuppressWarnings("PMD.ImmutableField")
+    private String threads = "1";
+
+    /**
+     * Whether to skip files that have not changed since a previous execution found them correctly formatted. Cached
+     * results are invalidated whenever any formatting option changes.
+     */
+    @Parameter(property = "xml-format.useCache", defaultValue = "true")
+    private boolean useCache = true;
+
+    /**
+     * Whether to skip files ignored by Git, as described by the <code>.gitignore</code> files of the project and of
+     * its parent directories up to the root of the repository, and by <code>.git/info/exclude</code>. Ignored
+     * directories are not searched at all.
+     */
+    @Parameter(property = "xml-format.useGitIgnore", defaultValue = "false")
+    private boolean useGitIgnore;
+
+    /**
+     * Whether to process each file on its own virtual thread, instead of the <code>threads</code> platform threads,
+     * when running on Java 21 or later. Reading and writing files then never holds a thread back, while at most one
+     * document per available processor is parsed and serialized at a time, sharing one parser and buffer per processor.
+     * This pays off when file I/O dominates, such as on network file systems. Earlier Java versions fall back to the
+     * platform threads with a warning.
+     */
+    @Parameter(property = "xml-format.virtualThreads", defaultValue = "false")
+    private boolean virtualThreads;
+
+    /**
+     * How files needing formatting are rewritten. Valid values are:
+     * <ul>
+     * <li><b>"ATOMIC"</b> - Write a temporary file next to the original and rename it over the original, so readers
+     * and concurrent builds never see a partially written file</li>
+     * <li><b>"OVERWRITE"</b> - Write into the original file, keeping hard links, ownership and access control
+     * lists</li>
+     * </ul>
+     * File permissions are kept by both strategies.
+     */
+    @Parameter(property = "xml-format.writeStrategy", defaultValue = "ATOMIC")
+    @SuppressWarnings("PMD.ImmutableField")
+    private WriteStrategy writeStrategy = WriteStrategy.ATOMIC;
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
         assert baseDirectory != null;
@@ -197,27 +391,77 @@ public abstract class AbstractXmlPlugin extends AbstractMojo {
             return;
         }
 
+        final long start = System.nanoTime();
         initializeIncludes();
         initializeExcludes();
 
         final XmlOutputFormat fmt = buildFormatter();
+        final List<Module> modules = modules();
+        final List<WorkItem> items = find(modules);
+        final int threadCount = Math.min(threadCount(), items.size());
 
-        boolean success = true;
-        boolean neededFormatting = false;
-        for (final String inputName : find()) {
-            final File input = new File(baseDirectory, inputName);
+        final FormatCache disk = useCache && cacheDirectory != null
+                ? FormatCache.load(cacheDirectory, baseDirectory, fmt) : null;
+        final ResultCache memory = useCache && memoryCacheSize > 0 ? ResultCache.shared(memoryCacheSize) : null;
+        final SharedCache shared = useCache && sharedCacheDirectory != null
+                ? SharedCache.open(sharedCacheDirectory, fmt, sharedCacheSize) : null;
+        final Caches cache = new Caches(fmt, disk, memory, shared);
+        final FileDurations durations = schedule == Schedule.HISTORY && cacheDirectory != null
+                ? FileDurations.load(cacheDirectory) : null;
+
+        final Totals totals = new Totals(violationLimit());
+        totals.report.setDiscoveryNanos(System.nanoTime() - start);
+        final ExecutorService virtual = virtualThreads && !items.isEmpty() ? newVirtualExecutor() : null;
+        if (virtual != null) {
+            fmt.setCpuPermits(new CpuPermits(Runtime.getRuntime().availableProcessors()));
+            processInParallel(items, fmt, cache, virtual, schedule(items, durations), totals);
+        } else if (threadCount > 1) {
+            processInParallel(items, fmt, cache, Executors.newFixedThreadPool(threadCount, new WorkerThreadFactory()),
+                    schedule(items, durations), totals);
+        } else {
             try {
-                neededFormatting |= processFile(input, fmt);
-            } catch (final DocumentException | IOException ex) {
-                success = false;
-                getLog().error("[xml-format] Error for " + input, ex);
+                processSequentially(items, fmt, cache, totals);
+            } finally {
+                FormatUtil.releaseThreadResources();
             }
         }
+        if (cache.disk != null) {
+            saveCache(cache.disk);
+        }
+        if (durations != null) {
+            saveDurations(durations, totals.report);
+        }
+        if (cache.shared != null) {
+            evictShared(cache.shared);
+        }
+        if (cache.memory != null) {
+            totals.report.setMemoryCache(cache.hits.sum(), cache.misses.sum());
+        }
+        if (getLog().isDebugEnabled()) {
+            logStatistics(fmt.getStatistics());
+        }
+        totals.report.setWallNanos(System.nanoTime() - start);
+        logReport(totals.report);
+        final int unprocessed = items.size() - totals.report.getFiles();
+        if (unprocessed > 0) {
+            getLog().info("[xml-format] Stopped after " + totals.violationsReported
+                    + " violations, skipping the remaining " + unprocessed + " files");
+        }
+
+        if (isAggregator()) {
+            logModules(modules);
+        }
 
-        if (!success) {
+        if (!totals.success) {
             throw new MojoFailureException("[xml-format] Failed)");
         }
-        afterAllProcessed(neededFormatting);
+        afterAllProcessed(totals.neededFormatting);
+    }
+
+    @Override
+    public Log getLog() {
+        final Log log = TASK_LOG.get();
+        return log == null ? super.getLog() : log;
     }
 
     /**
@@ -248,18 +492,103 @@ public abstract class AbstractXmlPlugin extends AbstractMojo {
      */
     protected abstract void afterAllProcessed(boolean neededFormatting) throws MojoExecutionException;
 
+    /**
+     * Indicates whether a file is correctly formatted once {@link #processFile(File, XmlOutputFormat)} has returned,
+     * allowing it to be skipped by later executions until it changes.
+     *
+     * @param neededFormatting
+     *            the value returned by {@link #processFile(File, XmlOutputFormat)}
+     *
+     * @return true if the file is now correctly formatted
+     */
+    protected boolean isFormattedAfter(final boolean neededFormatting) {
+        return !neededFormatting;
+    }
+
+    /**
+     * The number of violations, files needing formatting or failing to be processed, after which the remaining files
+     * are not processed. In-flight files are interrupted.
+     *
+     * @return the number of violations stopping the execution, or zero to always process every file
+     */
+    int violationLimit() {
+        return 0;
+    }
+
+    /**
+     * Indicates whether this goal processes the files of every project in the reactor at once, rather than only the
+     * files of the current project.
+     *
+     * @return true for aggregator goals
+     */
+    boolean isAggregator() {
+        return false;
+    }
+
+    File getBaseDirectory() {
+        return baseDirectory;
+    }
+
+    boolean isSkip() {
+        return skip;
+    }
+
     void setBaseDirectory(final File baseDirectory) {
         this.baseDirectory = baseDirectory;
     }
 
+    void setCacheDirectory(final File cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    void setChangedSince(final String changedSince) {
+        this.changedSince = changedSince;
+    }
+
     void setExcludes(final String... excludes) {
         this.excludes = excludes == null ? null : Arrays.copyOf(excludes, excludes.length);
     }
 
+    void setFsync(final boolean fsync) {
+        this.fsync = fsync;
+    }
+
     void setIncludes(final String... includes) {
         this.includes = includes == null ? null : Arrays.copyOf(includes, includes.length);
     }
 
+    void setPreserveTimestamps(final boolean preserveTimestamps) {
+        this.preserveTimestamps = preserveTimestamps;
+    }
+
+    void setMaxFileSize(final long maxFileSize) {
+        this.maxFileSize = maxFileSize;
+    }
+
+    void setMemoryCacheSize(final int memoryCacheSize) {
+        this.memoryCacheSize = memoryCacheSize;
+    }
+
+    void setReactorProjects(final List<MavenProject> reactorProjects) {
+        this.reactorProjects = reactorProjects;
+    }
+
+    void setReportFile(final File reportFile) {
+        this.reportFile = reportFile;
+    }
+
+    void setSchedule(final Schedule schedule) {
+        this.schedule = schedule;
+    }
+
+    void setSharedCacheDirectory(final File sharedCacheDirectory) {
+        this.sharedCacheDirectory = sharedCacheDirectory;
+    }
+
+    void setSharedCacheSize(final int sharedCacheSize) {
+        this.sharedCacheSize = sharedCacheSize;
+    }
+
     void setSkip(final boolean skip) {
         this.skip = skip;
     }
@@ -272,7 +601,27 @@ public abstract class AbstractXmlPlugin extends AbstractMojo {
         this.targetDirectory = targetDirectory;
     }
 
-    private XmlOutputFormat buildFormatter() {
+    void setThreads(final String threads) {
+        this.threads = threads;
+    }
+
+    void setUseCache(final boolean useCache) {
+        this.useCache = useCache;
+    }
+
+    void setUseGitIgnore(final boolean useGitIgnore) {
+        this.useGitIgnore = useGitIgnore;
+    }
+
+    void setVirtualThreads(final boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    void setWriteStrategy(final WriteStrategy writeStrategy) {
+        this.writeStrategy = writeStrategy;
+    }
+
+    XmlOutputFormat buildFormatter() {
         final XmlOutputFormat fmt = new XmlOutputFormat();
         fmt.setAttributeQuoteCharacter(attributeQuoteChar);
         fmt.setEncoding(encoding);
@@ -292,6 +641,11 @@ public abstract class AbstractXmlPlugin extends AbstractMojo {
         fmt.setTrimText(trimText);
         fmt.setXHTML(xhtml);
         fmt.setKeepBlankLines(keepBlankLines);
+        fmt.setInMemoryThreshold(inMemoryThreshold);
+        fmt.setEngine(engine);
+        fmt.setFsync(fsync);
+        fmt.setPreserveTimestamps(preserveTimestamps);
+        fmt.setWriteStrategy(writeStrategy);
         return fmt;
     }
 
@@ -299,20 +653,415 @@ public abstract class AbstractXmlPlugin extends AbstractMojo {
         return "\n".equals(lineSeparator) ? lineEnding.getChars() : lineSeparator;
     }
 
-    private String[] find() {
-        final DirectoryScanner dirScanner = new DirectoryScanner();
-        dirScanner.setBasedir(baseDirectory);
-        dirScanner.setIncludes(includes);
+    /**
+     * Lists the projects whose files are processed. Aggregator goals process every project of the reactor once, even
+     * if several executions or projects share a base directory.
+     */
+    private List<Module> modules() {
+        if (!isAggregator() || reactorProjects == null || reactorProjects.isEmpty()) {
+            return Collections.singletonList(currentModule());
+        }
+        final Map<File, Module> modules = new LinkedHashMap<>();
+        for (final MavenProject project : reactorProjects) {
+            final File basedir = project.getBasedir().getAbsoluteFile().toPath().normalize().toFile();
+            final File target = new File(project.getBuild().getDirectory());
+            modules.putIfAbsent(basedir, new Module(project.getArtifactId(), basedir, target));
+        }
+        return Collections.unmodifiableList(new ArrayList<>(modules.values()));
+    }
+
+    private Module currentModule() {
+        return new Module(baseDirectory.getName(), baseDirectory, targetDirectory);
+    }
+
+    /**
+     * Finds the files of all modules. The directories of modules nested within another module are only searched for
+     * the nested module, so each file belongs to the module closest to it.
+     */
+    private List<WorkItem> find(final List<Module> modules) throws MojoExecutionException {
+        final Set<File> seen = new LinkedHashSet<>();
+        final List<WorkItem> items = new ArrayList<>();
+        for (final Module module : modules) {
+            final List<String> nested = new ArrayList<>();
+            for (final Module other : modules) {
+                final Path otherPath = other.baseDirectory.toPath();
+                if (other != module && otherPath.startsWith(module.baseDirectory.toPath())) {
+                    nested.add(module.baseDirectory.toPath().relativize(otherPath).toString()
+                            .replace(File.separatorChar, '/') + "/**");
+                }
+            }
+            for (final String inputName : find(module, nested, null)) {
+                final File input = new File(module.baseDirectory, inputName);
+                if (seen.add(input.getAbsoluteFile())) {
+                    items.add(new WorkItem(module, input, modules.size() == 1 ? inputName : relativize(input)));
+                }
+            }
+        }
+        return items;
+    }
+
+    private String[] find(final Module module, final List<String> nested, final List<String> candidates)
+            throws MojoExecutionException {
+        final FileFinder finder = new FileFinder(module.baseDirectory);
+        finder.setIncludes(includes);
 
         final List<String> exclude = new ArrayList<>(Arrays.asList(excludes));
-        if (skipTargetFolder && baseDirectory.equals(targetDirectory.getParentFile())) {
-            exclude.add(targetDirectory.getName() + "/**");
+        exclude.addAll(nested);
+        if (skipTargetFolder && module.baseDirectory.equals(module.targetDirectory.getParentFile())) {
+            exclude.add(module.targetDirectory.getName() + "/**");
         }
         final String[] excluded = new String[exclude.size()];
-        dirScanner.setExcludes(exclude.toArray(excluded));
+        finder.setExcludes(exclude.toArray(excluded));
+        finder.setParallelism(threadCount());
+        finder.setUseGitIgnore(useGitIgnore);
+        if (candidates != null) {
+            finder.setCandidates(candidates);
+        } else if (changedSince != null && !changedSince.trim().isEmpty()) {
+            try {
+                finder.setCandidates(ChangedFiles.find(module.baseDirectory, changedSince.trim()));
+            } catch (final IOException ex) {
+                throw new MojoExecutionException("[xml-format] Could not list files changed since " + changedSince,
+                        ex);
+            }
+        }
+
+        finder.scan();
+        return finder.getIncludedFiles();
+    }
+
+    /**
+     * Finds the files of the current project matching the includes and excludes.
+     *
+     * @return the files
+     *
+     * @throws MojoExecutionException
+     *             if the files could not be listed
+     */
+    List<File> findFiles() throws MojoExecutionException {
+        final List<File> files = new ArrayList<>();
+        for (final WorkItem item : find(Collections.singletonList(currentModule()))) {
+            files.add(item.input);
+        }
+        return files;
+    }
+
+    /**
+     * Indicates whether a file of the current project matches the includes and excludes.
+     *
+     * @param file
+     *            the file
+     *
+     * @return true if the file exists and would be processed
+     *
+     * @throws MojoExecutionException
+     *             if the file could not be checked
+     */
+    boolean isIncluded(final File file) throws MojoExecutionException {
+        final Path base = baseDirectory.getAbsoluteFile().toPath().normalize();
+        final Path path = file.getAbsoluteFile().toPath().normalize();
+        if (!path.startsWith(base) || path.equals(base)) {
+            return false;
+        }
+        final List<String> candidate = Collections.singletonList(base.relativize(path).toString());
+        return find(currentModule(), Collections.<String>emptyList(), candidate).length == 1;
+    }
+
+    /**
+     * Indicates whether a directory of the current project never holds files to process, such as the project build
+     * directory or a Git repository.
+     *
+     * @param directory
+     *            the directory
+     *
+     * @return true if the directory and its content are skipped
+     */
+    boolean isSkippedDirectory(final File directory) {
+        return ".git".equals(directory.getName())
+                || (skipTargetFolder && directory.getAbsoluteFile().equals(targetDirectory.getAbsoluteFile()));
+    }
+
+    /**
+     * The path of a file relative to the base directory of the execution, identifying it in the cache and reports.
+     */
+    private String relativize(final File input) {
+        return baseDirectory.getAbsoluteFile().toPath().normalize().relativize(input.getAbsoluteFile().toPath())
+                .toString();
+    }
+
+    private void processSequentially(final List<WorkItem> items, final XmlOutputFormat fmt, final Caches cache,
+            final Totals totals) {
+        for (final WorkItem item : items) {
+            report(process(item, fmt, cache), totals);
+            if (totals.isLimitReported()) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * The order in which files are submitted to the threads.
+     *
+     * @return the indexes of the files in the given list
+     */
+    private List<Integer> schedule(final List<WorkItem> items, final FileDurations durations) {
+        final List<Integer> order = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            order.add(i);
+        }
+        if (schedule == Schedule.DISCOVERY) {
+            return order;
+        }
+        final long[] costs = new long[items.size()];
+        for (int i = 0; i < costs.length; i++) {
+            final WorkItem item = items.get(i);
+            final long bytes = item.input.length();
+            costs[i] = durations == null ? bytes : durations.estimate(item.path, bytes);
+        }
+        // Stable, so files of equal cost keep their discovery order
+        order.sort(Comparator.comparingLong((Integer index) -> costs[index]).reversed());
+        return order;
+    }
+
+    /**
+     * Processes files on the given executor, which is shut down once all files have been processed.
+     */
+    private void processInParallel(final List<WorkItem> items, final XmlOutputFormat fmt, final Caches cache,
+            final ExecutorService executor, final List<Integer> order, final Totals totals)
+            throws MojoExecutionException {
+        // Files too large to be formatted in memory are formatted one at a time beside the pool, bounding their memory
+        final ExecutorService large = Executors.newSingleThreadExecutor(new WorkerThreadFactory());
+        try {
+            final List<Future<FileResult>> futures = new ArrayList<>(Collections.nCopies(items.size(), null));
+            for (final int index : order) {
+                final WorkItem item = items.get(index);
+                final BufferedLog log = new BufferedLog(super.getLog());
+                final boolean isLarge = item.input.length() > fmt.getInMemoryThreshold();
+                futures.set(index, (isLarge ? large : executor).submit(() -> {
+                    if (totals.isStopped()) {
+                        return null;
+                    }
+                    TASK_LOG.set(log);
+                    try {
+                        final FileResult result = process(item, fmt, cache);
+                        totals.found(result);
+                        return result;
+                    } finally {
+                        TASK_LOG.remove();
+                    }
+                }));
+            }
+
+            // Report in discovery order, so the build output does not depend on scheduling. Files skipped once enough
+            // violations were found are left out, the violations found by later files are reported instead.
+            for (final Future<FileResult> future : futures) {
+                final FileResult result = await(future);
+                if (result != null) {
+                    report(result, totals);
+                    if (totals.isLimitReported()) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            large.shutdownNow();
+            // Interrupted files may still record their outcome in the caches, which are only saved once they are done
+            awaitTermination(executor);
+            awaitTermination(large);
+        }
+    }
+
+    private void awaitTermination(final ExecutorService executor) {
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                getLog().warn("[xml-format] Files still processed after " + SHUTDOWN_TIMEOUT_SECONDS
+                        + " seconds may be missing from the cache");
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private FileResult process(final WorkItem item, final XmlOutputFormat fmt, final Caches cache) {
+        final File input = item.input;
+        final String inputName = item.path;
+        final long bytes = input.length();
+        final long start = System.nanoTime();
+        boolean neededFormatting = false;
+        Throwable error = null;
+        Outcome outcome;
+        try {
+            if (maxFileSize > 0 && bytes > maxFileSize) {
+                getLog().warn("[xml-format] Skipped " + input + ": its " + bytes + " bytes exceed maxFileSize ("
+                        + maxFileSize + " bytes)");
+                outcome = Outcome.SKIPPED;
+            } else if (cache.isFormatted(inputName, input)) {
+                if (getLog().isDebugEnabled()) {
+                    getLog().debug("[xml-format] Unchanged since last run: " + input);
+                }
+                outcome = Outcome.CACHED;
+            } else {
+                if (getLog().isDebugEnabled() && FormatUtil.engineFor(bytes, fmt) != fmt.getEngine()) {
+                    getLog().debug("[xml-format] Streaming " + input + " as its tree would not fit in the heap");
+                }
+                neededFormatting = processFile(input, fmt);
+                if (isFormattedAfter(neededFormatting)) {
+                    cache.recordFormatted(inputName, input);
+                }
+                outcome = neededFormatting ? Outcome.UNFORMATTED : Outcome.FORMATTED;
+            }
+        } catch (final DocumentException | IOException ex) {
+            error = ex;
+            outcome = Outcome.ERROR;
+        }
+        final Entry entry = new Entry(inputName, bytes, outcome, System.nanoTime() - start,
+                fmt.getStatistics().takeFileNanos());
+        return new FileResult(item.module, input, neededFormatting, error, entry);
+    }
+
+    private void report(final FileResult result, final Totals totals) {
+        if (result.log != null) {
+            result.log.replay();
+        }
+        final Module module = result.module;
+        module.files++;
+        if (result.error != null) {
+            totals.success = false;
+            module.errors++;
+            getLog().error("[xml-format] Error for " + result.input, result.error);
+        }
+        if (result.neededFormatting) {
+            totals.neededFormatting = true;
+            module.neededFormatting++;
+        }
+        if (result.isViolation()) {
+            totals.violationsReported++;
+        }
+        totals.report.add(result.entry);
+    }
+
+    private void logModules(final List<Module> modules) {
+        for (final Module module : modules) {
+            final String summary = "[xml-format] Module " + module.name + ": " + module.files + " files, "
+                    + module.neededFormatting + " needed formatting, " + module.errors + " errors";
+            if (module.errors > 0) {
+                getLog().error(summary);
+            } else {
+                getLog().info(summary);
+            }
+        }
+    }
+
+    private void logReport(final BuildReport report) {
+        getLog().info("[xml-format] " + report.summary());
+        if (getLog().isDebugEnabled() && report.getFiles() > 0) {
+            final StringBuilder phases = new StringBuilder("[xml-format] Time per phase:");
+            String separator = " ";
+            for (final Phase phase : Phase.values()) {
+                phases.append(separator).append(phase.label()).append(' ')
+                        .append(BuildReport.millis(report.getNanos(phase))).append(" ms");
+                separator = ", ";
+            }
+            getLog().debug(phases.toString());
+            for (final Entry entry : report.getSlowest(BuildReport.SLOWEST)) {
+                getLog().debug("[xml-format] Slow file: " + entry.getPath() + " ("
+                        + BuildReport.millis(entry.getNanos()) + " ms)");
+            }
+        }
+        if (reportFile != null) {
+            try {
+                report.write(reportFile);
+            } catch (final IOException ex) {
+                getLog().warn("[xml-format] Unable to write report " + reportFile, ex);
+            }
+        }
+    }
+
+    private void logStatistics(final FormatStatistics statistics) {
+        final long files = statistics.getFiles();
+        if (files > 0) {
+            final long fastPath = statistics.getFastPath();
+            getLog().debug("[xml-format] Fast path proved " + fastPath + " of " + files + " files formatted ("
+                    + fastPath * 100 / files + "%)");
+            final long lineEndingsOnly = statistics.getLineEndingsOnly();
+            if (lineEndingsOnly > 0) {
+                getLog().debug("[xml-format] Fast path proved " + lineEndingsOnly + " files to only need other line "
+                        + "endings");
+            }
+        }
+    }
+
+    private void saveDurations(final FileDurations durations, final BuildReport report) {
+        for (final Entry entry : report.getEntries()) {
+            durations.record(entry.getPath(), entry.getBytes(), entry.getNanos());
+        }
+        try {
+            durations.save();
+        } catch (final IOException ex) {
+            getLog().warn("[xml-format] Unable to save durations in " + cacheDirectory, ex);
+        }
+    }
+
+    private void evictShared(final SharedCache shared) {
+        try {
+            final int evicted = shared.evict();
+            if (evicted > 0 && getLog().isDebugEnabled()) {
+                getLog().debug("[xml-format] Evicted " + evicted + " entries from " + sharedCacheDirectory);
+            }
+        } catch (final IOException ex) {
+            getLog().warn("[xml-format] Unable to evict entries from " + sharedCacheDirectory, ex);
+        }
+    }
+
+    private void saveCache(final FormatCache cache) {
+        try {
+            cache.save();
+        } catch (final IOException ex) {
+            getLog().warn("[xml-format] Unable to save cache in " + cacheDirectory, ex);
+        }
+    }
+
+    private static FileResult await(final Future<FileResult> future) throws MojoExecutionException {
+        try {
+            return future.get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("[xml-format] Interrupted", ex);
+        } catch (final ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new MojoExecutionException("[xml-format] Unexpected failure", cause);
+        }
+    }
 
-        dirScanner.scan();
-        return dirScanner.getIncludedFiles();
+    private ExecutorService newVirtualExecutor() {
+        try {
+            return VirtualThreads.newExecutor();
+        } catch (final UnsupportedOperationException ex) {
+            getLog().warn("[xml-format] " + ex.getMessage() + ", using " + threads + " platform threads instead");
+            return null;
+        }
+    }
+
+    private int threadCount() throws MojoExecutionException {
+        final String value = threads == null ? "" : threads.trim().toUpperCase(Locale.ROOT);
+        try {
+            final int count;
+            if (value.endsWith("C")) {
+                final float perCore = Float.parseFloat(value.substring(0, value.length() - 1));
+                count = (int) (perCore * Runtime.getRuntime().availableProcessors());
+            } else {
+                count = Integer.parseInt(value);
+            }
+            return Math.max(1, count);
+        } catch (final NumberFormatException ex) {
+            throw new MojoExecutionException("[xml-format] Invalid threads value: " + threads, ex);
+        }
     }
 
     private void initializeExcludes() {
@@ -326,4 +1075,181 @@ public abstract class AbstractXmlPlugin extends AbstractMojo {
             includes = new String[] { "**/*.xml" };
         }
     }
+
+    /**
+     * Outcome of processing a single file.
+     */
+    private static final class FileResult {
+        private final Entry entry;
+        private final Throwable error;
+        private final File input;
+        private final BufferedLog log;
+        private final Module module;
+        private final boolean neededFormatting;
+
+        FileResult(final Module module, final File input, final boolean neededFormatting, final Throwable error,
+                final Entry entry) {
+            this.module = module;
+            this.input = input;
+            this.neededFormatting = neededFormatting;
+            this.error = error;
+            this.entry = entry;
+            this.log = TASK_LOG.get();
+        }
+
+        boolean isViolation() {
+            return neededFormatting || error != null;
+        }
+    }
+
+    /**
+     * The caches of files known to be correctly formatted, with the number of files found in the memory cache.
+     */
+    private static final class Caches {
+        private final FormatCache disk;
+        private final String fingerprint;
+        private final LongAdder hits = new LongAdder();
+        private final ResultCache memory;
+        private final LongAdder misses = new LongAdder();
+        private final SharedCache shared;
+
+        Caches(final XmlOutputFormat fmt, final FormatCache disk, final ResultCache memory, final SharedCache shared) {
+            this.disk = disk;
+            this.memory = memory;
+            this.shared = shared;
+            this.fingerprint = fmt.fingerprint();
+        }
+
+        boolean isFormatted(final String name, final File file) throws IOException {
+            if (memory != null) {
+                if (memory.isFormatted(file, fingerprint)) {
+                    hits.increment();
+                    if (disk != null) {
+                        disk.retain(name, file);
+                    }
+                    return true;
+                }
+                misses.increment();
+            }
+            if (disk != null && disk.isFormatted(name, file)) {
+                if (memory != null) {
+                    memory.recordFormatted(file, fingerprint);
+                }
+                return true;
+            }
+            if (shared != null) {
+                // Hashing is still much cheaper than parsing, and is all a fresh checkout needs
+                final long hash = IOUtil.hash(file, FormatCache.HASH);
+                if (shared.isFormatted(hash, file.length())) {
+                    if (disk != null) {
+                        disk.recordFormatted(name, file, hash);
+                    }
+                    if (memory != null) {
+                        memory.recordFormatted(file, fingerprint);
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void recordFormatted(final String name, final File file) throws IOException {
+            if (disk != null || shared != null) {
+                final long hash = IOUtil.hash(file, FormatCache.HASH);
+                if (disk != null) {
+                    disk.recordFormatted(name, file, hash);
+                }
+                if (shared != null) {
+                    shared.recordFormatted(hash, file.length());
+                }
+            }
+            if (memory != null) {
+                memory.recordFormatted(file, fingerprint);
+            }
+        }
+    }
+
+    /**
+     * A project whose files are processed, with the outcome of its files processed so far.
+     */
+    private static final class Module {
+        private final File baseDirectory;
+        private final String name;
+        private final File targetDirectory;
+        private int errors;
+        private int files;
+        private int neededFormatting;
+
+        Module(final String name, final File baseDirectory, final File targetDirectory) {
+            this.name = name;
+            this.baseDirectory = baseDirectory;
+            this.targetDirectory = targetDirectory;
+        }
+    }
+
+    /**
+     * A file to process, with the path identifying it in the cache and reports.
+     */
+    private static final class WorkItem {
+        private final File input;
+        private final Module module;
+        private final String path;
+
+        WorkItem(final Module module, final File input, final String path) {
+            this.module = module;
+            this.input = input;
+            this.path = path;
+        }
+    }
+
+    /**
+     * Aggregated outcome of all files processed so far.
+     */
+    private static final class Totals {
+        private final BuildReport report = new BuildReport();
+        private boolean neededFormatting;
+        private boolean success = true;
+        private final int violationLimit;
+        private final AtomicInteger violationsFound = new AtomicInteger();
+        private int violationsReported;
+
+        Totals(final int violationLimit) {
+            this.violationLimit = violationLimit;
+        }
+
+        /**
+         * Counts the violation of a file as soon as it has been processed, before it is reported.
+         */
+        void found(final FileResult result) {
+            if (result.isViolation()) {
+                violationsFound.incrementAndGet();
+            }
+        }
+
+        /**
+         * Indicates whether enough violations were found to stop processing files, although they may not all have
+         * been reported yet.
+         */
+        boolean isStopped() {
+            return violationLimit > 0 && violationsFound.get() >= violationLimit;
+        }
+
+        boolean isLimitReported() {
+            return violationLimit > 0 && violationsReported >= violationLimit;
+        }
+    }
+
+    /**
+     * Creates daemon worker threads, so a stuck file can never prevent the JVM from exiting.
+     */
+    private static final class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "xml-format-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
 }
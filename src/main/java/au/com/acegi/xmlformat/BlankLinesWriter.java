@@ -20,9 +20,8 @@ package au.com.acegi.xmlformat;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
-import java.util.StringTokenizer;
+import java.io.Writer;
 
-import org.apache.commons.lang3.StringUtils;
 import org.dom4j.Node;
 import org.dom4j.io.XMLWriter;
 
@@ -47,76 +46,105 @@ class BlankLinesWriter extends XMLWriter {
         }
 
         if (getOutputFormat().isTrimText()) {
-            boolean first = true;
-            final StringTokenizer tokenizer = new StringTokenizer(input, " \t\r\f");
-
-            final NewLinesHandler newLinesHandler = new NewLinesHandler();
-            while (tokenizer.hasMoreTokens()) {
-                final String token = tokenizer.nextToken();
-
-                // Only if more tokens exist, continue
-                if (newLinesHandler.processToken(token, tokenizer.hasMoreTokens())) {
-                    continue;
-                }
-
-                if (first) {
-                    first = false;
-                    if (lastOutputNodeType == Node.TEXT_NODE) {
-                        writer.write(" ");
-                    }
-                } else {
-                    writer.write(" ");
-                }
-
-                writer.write(token.trim());
-                lastOutputNodeType = Node.TEXT_NODE;
-            }
-            newLinesHandler.finished();
+            lastOutputNodeType = writeTrimmed(writer, input, lastOutputNodeType);
         } else {
             lastOutputNodeType = Node.TEXT_NODE;
             writer.write(input);
         }
     }
 
-    private final class NewLinesHandler {
-        private int newLinesCount;
+    /**
+     * Writes already escaped text with its whitespace trimmed, preserving at most one blank line.
+     * <p>
+     * The text is split into tokens separated by spaces, tabs, carriage returns and form feeds. Tokens holding line feeds
+     * only contribute to the count of new lines, unless they are the last token, and a single line feed is written when
+     * more than one was counted before the next token. The text is scanned once by index and tokens are written
+     * straight from it, so nothing is allocated.
+     *
+     * @param writer
+     *            destination of the text
+     * @param input
+     *            escaped text to write
+     * @param lastOutputNodeType
+     *            type of the node written last
+     *
+     * @return type of the node written last once the text has been written
+     *
+     * @throws IOException
+     *             If an I/O error occurs.
+     */
+    static int writeTrimmed(final Writer writer, final String input, final int lastOutputNodeType)
+            throws IOException {
+        int lastType = lastOutputNodeType;
+        boolean first = true;
+        int newLinesCount = 0;
+
+        final int length = input.length();
+        int start = skipDelimiters(input, 0);
+        while (start < length) {
+            int end = start;
+            int tokenNewLines = 0;
+            while (end < length) {
+                final char c = input.charAt(end);
+                if (isDelimiter(c)) {
+                    break;
+                }
+                if (c == '\n') {
+                    tokenNewLines++;
+                }
+                end++;
+            }
+            final int next = skipDelimiters(input, end);
 
-        /**
-         * Processes the token, counting the newlines and producing at most one in output.
-         *
-         * @param token
-         *            The token to be written
-         * @param hasMoreTokens
-         *            Does more tokens exist
-         *
-         * @return True if the token needs to be skipped (it's a newline or a set of newlines)
-         *
-         * @throws IOException
-         *             If an I/O error occurs.
-         */
-        private boolean processToken(final String token, final boolean hasMoreTokens) throws IOException {
-            final int tokenNewLines = StringUtils.countMatches(token, '\n');
             if (tokenNewLines > 0) {
                 newLinesCount += tokenNewLines;
-                return hasMoreTokens;
-            }
-            if (newLinesCount > 1) {
-                writer.write("\n");
+                // Only if more tokens exist, continue
+                if (next < length) {
+                    start = next;
+                    continue;
+                }
+            } else if (newLinesCount > 1) {
+                writer.write('\n');
                 newLinesCount = 0;
             }
-            return false;
-        }
 
-        /**
-         * Marks the end of token streams, allows to emit a last newlines if the last tokens were all newlines.
-         *
-         * @throws IOException
-         *             If an I/O error occurs.
-         */
-        private void finished() throws IOException {
-            if (newLinesCount > 1) {
-                writer.write("\n");
+            if (first) {
+                first = false;
+                if (lastType == Node.TEXT_NODE) {
+                    writer.write(' ');
+                }
+            } else {
+                writer.write(' ');
+            }
+
+            // Same characters as String.trim()
+            while (start < end && input.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && input.charAt(end - 1) <= ' ') {
+                end--;
             }
+            writer.write(input, start, end - start);
+            lastType = Node.TEXT_NODE;
+            start = next;
+        }
+
+        // Emits a last new line if the last tokens were all new lines
+        if (newLinesCount > 1) {
+            writer.write('\n');
+        }
+        return lastType;
+    }
+
+    private static boolean isDelimiter(final char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\f';
+    }
+
+    private static int skipDelimiters(final String input, final int from) {
+        int index = from;
+        while (index < input.length() && isDelimiter(input.charAt(index))) {
+            index++;
         }
+        return index;
     }
 }
@@ -0,0 +1,128 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * {@link Log} that records messages so they can be replayed later, keeping the output of a file processed on a worker
+ * thread grouped together and in a deterministic order.
+ */
+final class BufferedLog implements Log {
+
+    private final Log delegate;
+    private final List<Consumer<Log>> entries = new ArrayList<>();
+
+    BufferedLog(final Log delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void debug(final CharSequence content) {
+        entries.add(log -> log.debug(content));
+    }
+
+    @Override
+    public void debug(final CharSequence content, final Throwable error) {
+        entries.add(log -> log.debug(content, error));
+    }
+
+    @Override
+    public void debug(final Throwable error) {
+        entries.add(log -> log.debug(error));
+    }
+
+    @Override
+    public void error(final CharSequence content) {
+        entries.add(log -> log.error(content));
+    }
+
+    @Override
+    public void error(final CharSequence content, final Throwable error) {
+        entries.add(log -> log.error(content, error));
+    }
+
+    @Override
+    public void error(final Throwable error) {
+        entries.add(log -> log.error(error));
+    }
+
+    @Override
+    public void info(final CharSequence content) {
+        entries.add(log -> log.info(content));
+    }
+
+    @Override
+    public void info(final CharSequence content, final Throwable error) {
+        entries.add(log -> log.info(content, error));
+    }
+
+    @Override
+    public void info(final Throwable error) {
+        entries.add(log -> log.info(error));
+    }
+
+    @Override
+    public boolean isDebugEnabled() {
+        return delegate.isDebugEnabled();
+    }
+
+    @Override
+    public boolean isErrorEnabled() {
+        return delegate.isErrorEnabled();
+    }
+
+    @Override
+    public boolean isInfoEnabled() {
+        return delegate.isInfoEnabled();
+    }
+
+    @Override
+    public boolean isWarnEnabled() {
+        return delegate.isWarnEnabled();
+    }
+
+    @Override
+    public void warn(final CharSequence content) {
+        entries.add(log -> log.warn(content));
+    }
+
+    @Override
+    public void warn(final CharSequence content, final Throwable error) {
+        entries.add(log -> log.warn(content, error));
+    }
+
+    @Override
+    public void warn(final Throwable error) {
+        entries.add(log -> log.warn(error));
+    }
+
+    /**
+     * Writes all recorded messages to the log this buffer was created for, in the order they were recorded.
+     */
+    void replay() {
+        for (final Consumer<Log> entry : entries) {
+            entry.accept(delegate);
+        }
+        entries.clear();
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Timings of one plugin execution, summarised in the build log and optionally written as a machine-readable report.
+ * Reports whose name ends with <code>.csv</code> hold one line per file, all others are written as JSON.
+ */
+final class BuildReport {
+
+    /**
+     * The number of slowest files listed in summaries.
+     */
+    static final int SLOWEST = 10;
+
+    private static final Phase[] PHASES = Phase.values();
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    private final List<Entry> entries = new ArrayList<>();
+    private long discoveryNanos;
+    private long memoryHits;
+    private long memoryMisses;
+    private long wallNanos;
+
+    /**
+     * Records a processed file. Files must be added in the order they are reported.
+     *
+     * @param entry
+     *            the timings of the file
+     */
+    void add(final Entry entry) {
+        entries.add(entry);
+    }
+
+    long getBytes() {
+        long sum = 0;
+        for (final Entry entry : entries) {
+            sum += entry.bytes;
+        }
+        return sum;
+    }
+
+    /**
+     * The processed files.
+     *
+     * @return the timings of every file, in the order they were reported
+     */
+    List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    long getDiscoveryNanos() {
+        return discoveryNanos;
+    }
+
+    int getFiles() {
+        return entries.size();
+    }
+
+    /**
+     * The time spent in a phase by all files.
+     *
+     * @param phase
+     *            the phase
+     *
+     * @return the time in nanoseconds
+     */
+    long getNanos(final Phase phase) {
+        long sum = 0;
+        for (final Entry entry : entries) {
+            sum += entry.getNanos(phase);
+        }
+        return sum;
+    }
+
+    /**
+     * The per-file latency below which the given share of files completed, using the nearest-rank method.
+     *
+     * @param percent
+     *            the share of files, between 0 (exclusive) and 100 (inclusive)
+     *
+     * @return the latency in nanoseconds, or 0 if no file was processed
+     */
+    long getPercentile(final int percent) {
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        final long[] sorted = new long[entries.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = entries.get(i).nanos;
+        }
+        Arrays.sort(sorted);
+        final int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    /**
+     * The files that took longest to process, slowest first.
+     *
+     * @param count
+     *            the maximum number of files
+     *
+     * @return the timings of the slowest files
+     */
+    List<Entry> getSlowest(final int count) {
+        final List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparingLong((Entry entry) -> entry.nanos).reversed());
+        return sorted.subList(0, Math.min(count, sorted.size()));
+    }
+
+    long getWallNanos() {
+        return wallNanos;
+    }
+
+    void setDiscoveryNanos(final long discoveryNanos) {
+        this.discoveryNanos = discoveryNanos;
+    }
+
+    /**
+     * Sets the outcome of looking files up in the memory cache, reported once set.
+     *
+     * @param hits
+     *            the number of files found to be unchanged since they were formatted
+     * @param misses
+     *            the number of files that had to be checked
+     */
+    void setMemoryCache(final long hits, final long misses) {
+        this.memoryHits = hits;
+        this.memoryMisses = misses;
+    }
+
+    void setWallNanos(final long wallNanos) {
+        this.wallNanos = wallNanos;
+    }
+
+    /**
+     * The one line summary of the execution.
+     *
+     * @return the summary, without log prefix
+     */
+    String summary() {
+        return "Processed " + getFiles() + " files (" + getBytes() + " bytes) in " + millis(wallNanos)
+                + " ms, discovery " + millis(discoveryNanos) + " ms, per file p50 " + millis(getPercentile(50))
+                + " ms, p95 " + millis(getPercentile(95)) + " ms, max " + millis(getPercentile(100)) + " ms"
+                + (memoryHits + memoryMisses > 0 ? ", memory cache " + memoryHits + " hits, " + memoryMisses + " misses"
+                        : "");
+    }
+
+    /**
+     * Writes the report, creating its directory if needed.
+     *
+     * @param file
+     *            the report file, written as CSV if its name ends with <code>.csv</code> and as JSON otherwise
+     *
+     * @throws IOException
+     *             if the report could not be written
+     */
+    void write(final File file) throws IOException {
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            Files.createDirectories(parent.toPath());
+        }
+        try (Writer out = Files.newBufferedWriter(file.toPath(), UTF_8)) {
+            if (file.getName().toLowerCase(Locale.ROOT).endsWith(".csv")) {
+                writeCsv(out);
+            } else {
+                writeJson(out);
+            }
+        }
+    }
+
+    static String millis(final long nanos) {
+        return String.format(Locale.ROOT, "%.1f", (double) nanos / NANOS_PER_MILLI);
+    }
+
+    private void writeCsv(final Writer out) throws IOException {
+        out.write("file,bytes,outcome,nanos");
+        for (final Phase phase : PHASES) {
+            out.write(',');
+            out.write(phase.label());
+            out.write("_nanos");
+        }
+        out.write('\n');
+        for (final Entry entry : entries) {
+            out.write(csv(entry.path));
+            out.write(',' + Long.toString(entry.bytes) + ',' + entry.outcome.label() + ',' + entry.nanos);
+            for (final Phase phase : PHASES) {
+                out.write(',' + Long.toString(entry.getNanos(phase)));
+            }
+            out.write('\n');
+        }
+    }
+
+    private void writeJson(final Writer out) throws IOException {
+        out.write("{\n");
+        out.write("  \"files\": " + getFiles() + ",\n");
+        out.write("  \"bytes\": " + getBytes() + ",\n");
+        out.write("  \"wallNanos\": " + wallNanos + ",\n");
+        out.write("  \"discoveryNanos\": " + discoveryNanos + ",\n");
+        out.write("  \"memoryCache\": {\"hits\": " + memoryHits + ", \"misses\": " + memoryMisses + "},\n");
+        out.write("  \"latencyNanos\": {\"p50\": " + getPercentile(50) + ", \"p95\": " + getPercentile(95)
+                + ", \"max\": " + getPercentile(100) + "},\n");
+        final Map<Phase, Long> totals = new EnumMap<>(Phase.class);
+        for (final Phase phase : PHASES) {
+            totals.put(phase, getNanos(phase));
+        }
+        out.write("  \"phaseNanos\": " + jsonPhases(totals) + ",\n");
+        out.write("  \"slowest\": [");
+        writeJsonEntries(out, getSlowest(SLOWEST));
+        out.write("],\n");
+        out.write("  \"results\": [");
+        writeJsonEntries(out, entries);
+        out.write("]\n");
+        out.write("}\n");
+    }
+
+    private static void writeJsonEntries(final Writer out, final List<Entry> list) throws IOException {
+        for (int i = 0; i < list.size(); i++) {
+            final Entry entry = list.get(i);
+            out.write(i == 0 ? "\n" : ",\n");
+            out.write("    {\"file\": " + json(entry.path) + ", \"bytes\": " + entry.bytes + ", \"outcome\": \""
+                    + entry.outcome.label() + "\", \"nanos\": " + entry.nanos + ", \"phaseNanos\": "
+                    + jsonPhases(entry.phaseNanos) + "}");
+        }
+        if (!list.isEmpty()) {
+            out.write("\n  ");
+        }
+    }
+
+    private static String jsonPhases(final Map<Phase, Long> nanos) {
+        final StringBuilder sb = new StringBuilder("{");
+        String separator = "";
+        for (final Phase phase : PHASES) {
+            sb.append(separator).append('"').append(phase.label()).append("\": ")
+                    .append(nanos.getOrDefault(phase, 0L));
+            separator = ", ";
+        }
+        return sb.append('}').toString();
+    }
+
+    private static String csv(final String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String json(final String value) {
+        final StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * How a file was handled.
+     */
+    enum Outcome {
+
+        /** Skipped as unchanged since a previous execution. */
+        CACHED,
+
+        /** Already correctly formatted. */
+        FORMATTED,
+
+        /** Needed formatting, and was reformatted unless only checked. */
+        UNFORMATTED,
+
+        /** Skipped as larger than the configured maximum size. */
+        SKIPPED,
+
+        /** Could not be processed. */
+        ERROR;
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Timings of a single file.
+     */
+    static final class Entry {
+        private final long bytes;
+        private final long nanos;
+        private final Outcome outcome;
+        private final String path;
+        private final Map<Phase, Long> phaseNanos = new EnumMap<>(Phase.class);
+
+        /**
+         * Creates the timings of a file.
+         *
+         * @param path
+         *            the file path relative to the base directory
+         * @param bytes
+         *            the file size before processing
+         * @param outcome
+         *            the outcome of processing the file
+         * @param nanos
+         *            the time spent processing the file
+         * @param phaseNanos
+         *            the time spent in each phase, phases the file did not go through being left out
+         */
+        Entry(final String path, final long bytes, final Outcome outcome, final long nanos,
+                final Map<Phase, Long> phaseNanos) {
+            this.path = path;
+            this.bytes = bytes;
+            this.outcome = outcome;
+            this.nanos = nanos;
+            this.phaseNanos.putAll(phaseNanos);
+        }
+
+        long getBytes() {
+            return bytes;
+        }
+
+        long getNanos() {
+            return nanos;
+        }
+
+        long getNanos(final Phase phase) {
+            return phaseNanos.getOrDefault(phase, 0L);
+        }
+
+        String getPath() {
+            return path;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.AbstractTreeIterator;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.WorkingTreeIterator;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+/**
+ * Lists the files that changed in the Git repository holding a directory, reading the repository directly.
+ */
+final class ChangedFiles {
+
+    /**
+     * Selects the files staged in the index that differ from <code>HEAD</code>.
+     */
+    static final String STAGED = "staged";
+
+    private static final int BASE = 0;
+    private static final int INDEX = 1;
+    private static final int WORKING_TREE = 2;
+
+    private ChangedFiles() {
+    }
+
+    /**
+     * Lists the files changed below a directory.
+     *
+     * @param directory
+     *            directory whose files are listed, anywhere in a Git working tree
+     * @param changedSince
+     *            either {@link #STAGED}, or a revision (such as <code>origin/main</code> or a commit id): the working
+     *            tree, including uncommitted and untracked but not ignored files, is then compared with the common
+     *            ancestor of this revision and <code>HEAD</code>, as <code>git diff revision...</code> would
+     *
+     * @return the paths of the existing changed files, relative to the directory and using the platform separator
+     *
+     * @throws IOException
+     *             if the directory is not in a Git working tree, the revision does not exist or the repository could
+     *             not be read
+     */
+    static List<String> find(final File directory, final String changedSince) throws IOException {
+        return find(directory, changedSince, path -> {
+        });
+    }
+
+    /**
+     * Lists the files changed below a directory, reporting every entry of the repository that was walked to find them.
+     *
+     * @param directory
+     *            directory whose files are listed, anywhere in a Git working tree
+     * @param changedSince
+     *            either {@link #STAGED} or a revision, as for {@link #find(File, String)}
+     * @param walked
+     *            receives the path of each file and directory walked, relative to the root of the repository
+     *
+     * @return the paths of the existing changed files, relative to the directory and using the platform separator
+     *
+     * @throws IOException
+     *             if the directory is not in a Git working tree, the revision does not exist or the repository could
+     *             not be read
+     */
+    static List<String> find(final File directory, final String changedSince, final Consumer<String> walked)
+            throws IOException {
+        final FileRepositoryBuilder builder = new FileRepositoryBuilder().readEnvironment().findGitDir(directory);
+        if (builder.getGitDir() == null) {
+            throw new IOException("Not in a Git repository: " + directory);
+        }
+
+        try (Repository repository = builder.setMustExist(true).build()) {
+            if (repository.isBare()) {
+                throw new IOException("No working tree in Git repository: " + repository.getDirectory());
+            }
+            final Path workTree = repository.getWorkTree().toPath().toRealPath();
+            final String prefix = workTree.relativize(directory.toPath().toRealPath()).toString()
+                    .replace(File.separatorChar, '/');
+
+            try (ObjectReader reader = repository.newObjectReader(); TreeWalk walk = new TreeWalk(repository, reader)) {
+                final boolean staged = STAGED.equals(changedSince);
+                walk.addTree(baseTree(repository, reader, staged ? Constants.HEAD : changedSince));
+                walk.addTree(new DirCacheIterator(repository.readDirCache()));
+                final FileTreeIterator workingTree = new FileTreeIterator(repository);
+                walk.addTree(workingTree);
+                workingTree.setDirCacheIterator(walk, INDEX);
+
+                walk.setFilter(prefix.isEmpty() ? TreeFilter.ANY_DIFF
+                        : AndTreeFilter.create(PathFilter.create(prefix), TreeFilter.ANY_DIFF));
+
+                final List<String> changed = new ArrayList<>();
+                final int compared = staged ? INDEX : WORKING_TREE;
+                while (walk.next()) {
+                    walked.accept(walk.getPathString());
+                    if (walk.isSubtree()) {
+                        if (!isSkipped(walk, compared)) {
+                            walk.enterSubtree();
+                        }
+                    } else if (isChanged(walk, compared)) {
+                        final String path = walk.getPathString();
+                        final String relative = prefix.isEmpty() ? path : path.substring(prefix.length() + 1);
+                        changed.add(relative.replace('/', File.separatorChar));
+                    }
+                }
+                return changed;
+            }
+        }
+    }
+
+    /**
+     * Indicates whether a directory cannot hold changed files, so it is not walked at all. Untracked directories hold
+     * no staged files, and ignored untracked directories such as build output only hold ignored files, as Git does
+     * not look for exceptions inside an ignored directory.
+     */
+    private static boolean isSkipped(final TreeWalk walk, final int compared) throws IOException {
+        if (compared == INDEX) {
+            return walk.getRawMode(INDEX) == 0;
+        }
+        return isIgnoredUntracked(walk, compared);
+    }
+
+    /**
+     * Indicates whether the current entry of the working tree is ignored and not in the index, so that untracked
+     * changes are not reported for it.
+     */
+    private static boolean isIgnoredUntracked(final TreeWalk walk, final int compared) throws IOException {
+        final WorkingTreeIterator workingTree = walk.getTree(WORKING_TREE, WorkingTreeIterator.class);
+        return compared == WORKING_TREE && workingTree != null && walk.getRawMode(INDEX) == 0
+                && workingTree.isEntryIgnored();
+    }
+
+    private static boolean isChanged(final TreeWalk walk, final int compared) throws IOException {
+        final WorkingTreeIterator workingTree = walk.getTree(WORKING_TREE, WorkingTreeIterator.class);
+        if (workingTree == null) {
+            // Deleted from the working tree, nothing left to check
+            return false;
+        }
+        if (isIgnoredUntracked(walk, compared)) {
+            return false;
+        }
+        if (walk.getRawMode(compared) == 0) {
+            return false;
+        }
+        if (walk.getRawMode(BASE) == 0) {
+            return true;
+        }
+        if (compared == INDEX) {
+            return !walk.idEqual(BASE, INDEX);
+        }
+        final DirCacheIterator index = walk.getTree(INDEX, DirCacheIterator.class);
+        if (index != null && walk.idEqual(BASE, INDEX)) {
+            // Compares the index stat information before falling back to hashing the content
+            return workingTree.isModified(index.getDirCacheEntry(), true, walk.getObjectReader());
+        }
+        return !walk.getObjectId(BASE).equals(workingTree.getEntryObjectId());
+    }
+
+    private static AbstractTreeIterator baseTree(final Repository repository, final ObjectReader reader,
+            final String revision) throws IOException {
+        final ObjectId head = repository.resolve(Constants.HEAD);
+        final ObjectId id = repository.resolve(revision);
+        if (id == null) {
+            if (head == null && Constants.HEAD.equals(revision)) {
+                // Nothing committed yet: everything staged is new
+                return new EmptyTreeIterator();
+            }
+            throw new IOException("Unknown Git revision: " + revision);
+        }
+
+        try (RevWalk revWalk = new RevWalk(reader)) {
+            RevCommit base = revWalk.parseCommit(id);
+            if (head != null && !id.equals(head)) {
+                revWalk.setRevFilter(RevFilter.MERGE_BASE);
+                revWalk.markStart(base);
+                revWalk.markStart(revWalk.parseCommit(head));
+                final RevCommit mergeBase = revWalk.next();
+                if (mergeBase != null) {
+                    base = revWalk.parseCommit(mergeBase);
+                }
+            }
+            final CanonicalTreeParser parser = new CanonicalTreeParser();
+            parser.reset(reader, base.getTree());
+            return parser;
+        }
+    }
+}
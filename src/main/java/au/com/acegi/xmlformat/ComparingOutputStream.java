@@ -0,0 +1,189 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Output stream that compares everything written to it with the bytes of an expected stream, instead of storing it.
+ * Writing fails as soon as the first difference is found, which stops the formatter producing output nobody needs.
+ */
+final class ComparingOutputStream extends OutputStream {
+
+    private static final int CHUNK_SIZE = 8_192;
+
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private long column;
+    private Difference difference;
+    private final InputStream expected;
+    private boolean lastWasCarriageReturn;
+    private long line = 1;
+    private long offset;
+    private final boolean utf8;
+
+    /**
+     * Creates a stream comparing written bytes with the given stream.
+     *
+     * @param expected
+     *            stream of expected bytes, which the caller is responsible for closing
+     * @param encoding
+     *            encoding of the expected bytes, used to report columns in characters rather than bytes
+     */
+    ComparingOutputStream(final InputStream expected, final String encoding) {
+        this.expected = expected;
+        this.utf8 = StandardCharsets.UTF_8.name().equalsIgnoreCase(encoding);
+    }
+
+    /**
+     * Completes the comparison once everything has been written.
+     *
+     * @return the first difference, or null if the written bytes were identical to the expected ones
+     *
+     * @throws IOException
+     *             if the expected stream could not be read
+     */
+    Difference finish() throws IOException {
+        if (difference == null && expected.read() != -1) {
+            // Everything written matched, but the expected content is longer
+            difference = new Difference(offset, line, column + 1);
+        }
+        return difference;
+    }
+
+    /**
+     * The first difference found while writing, if any.
+     *
+     * @return the difference, or null if none was found so far
+     */
+    Difference getDifference() {
+        return difference;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        checkNoDifference();
+        final int actual = expected.read();
+        if (actual != (b & 0xFF)) {
+            throw mismatch();
+        }
+        advance((byte) b);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        checkNoDifference();
+        int position = off;
+        int remaining = len;
+        while (remaining > 0) {
+            final int read = expected.read(chunk, 0, Math.min(remaining, chunk.length));
+            if (read < 0) {
+                throw mismatch();
+            }
+            for (int i = 0; i < read; i++) {
+                if (chunk[i] != b[position + i]) {
+                    throw mismatch();
+                }
+                advance(chunk[i]);
+            }
+            position += read;
+            remaining -= read;
+        }
+    }
+
+    private void advance(final byte b) {
+        offset++;
+        if (b == '\n') {
+            if (!lastWasCarriageReturn) {
+                line++;
+            }
+            column = 0;
+            lastWasCarriageReturn = false;
+        } else if (b == '\r') {
+            line++;
+            column = 0;
+            lastWasCarriageReturn = true;
+        } else {
+            lastWasCarriageReturn = false;
+            // UTF-8 continuation bytes belong to the character already counted
+            if (!utf8 || (b & 0xC0) != 0x80) {
+                column++;
+            }
+        }
+    }
+
+    private void checkNoDifference() throws IOException {
+        if (difference != null) {
+            throw new IOException("Content already differs at " + difference);
+        }
+    }
+
+    private IOException mismatch() {
+        difference = new Difference(offset, line, column + 1);
+        return new IOException("Content differs at " + difference);
+    }
+
+    /**
+     * Location of the first byte that differs from the expected content.
+     */
+    static final class Difference {
+        private final long column;
+        private final long line;
+        private final long offset;
+
+        Difference(final long offset, final long line, final long column) {
+            this.offset = offset;
+            this.line = line;
+            this.column = column;
+        }
+
+        /**
+         * The column of the difference, starting at 1.
+         *
+         * @return the column
+         */
+        long getColumn() {
+            return column;
+        }
+
+        /**
+         * The line of the difference, starting at 1.
+         *
+         * @return the line
+         */
+        long getLine() {
+            return line;
+        }
+
+        /**
+         * The byte offset of the difference, starting at 0.
+         *
+         * @return the offset
+         */
+        long getOffset() {
+            return offset;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + line + ", column " + column + " (byte offset " + offset + ")";
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * Hash functions identifying the content of a file where the content itself is not kept, such as in
+ * {@link FormatCache}. Equal hashes only make equal content likely, so wherever both contents are available they are
+ * compared byte for byte with {@link IOUtil#sameContent(ByteBuffer, ByteBuffer)} instead.
+ */
+enum ContentHash {
+
+    /**
+     * The 32-bit CRC of {@link java.util.zip.CRC32}, colliding once in about four billion changes.
+     */
+    CRC32 {
+        @Override
+        Hasher newHasher() {
+            final CRC32 crc = new CRC32();
+            return new Hasher() {
+                @Override
+                public void update(final ByteBuffer data) {
+                    crc.update(data);
+                }
+
+                @Override
+                public long getValue() {
+                    return crc.getValue();
+                }
+            };
+        }
+    },
+
+    /**
+     * The 64-bit {@link XxHash64}, faster than {@link #CRC32} and practically free of collisions.
+     */
+    XXHASH64 {
+        @Override
+        Hasher newHasher() {
+            return new XxHash64();
+        }
+    };
+
+    /**
+     * Starts computing a hash.
+     *
+     * @return a hasher receiving the content
+     */
+    abstract Hasher newHasher();
+
+    /**
+     * Hashes the remaining bytes of a buffer, without moving its position.
+     *
+     * @param data
+     *            the content
+     *
+     * @return the hash
+     */
+    long hash(final ByteBuffer data) {
+        final Hasher hasher = newHasher();
+        hasher.update(data.duplicate());
+        return hasher.getValue();
+    }
+
+    /**
+     * A hash being computed.
+     */
+    interface Hasher {
+
+        /**
+         * Adds the remaining bytes of a buffer, moving its position to its limit.
+         *
+         * @param data
+         *            the next bytes of the content
+         */
+        void update(ByteBuffer data);
+
+        /**
+         * The hash of all bytes added so far.
+         *
+         * @return the hash
+         */
+        long getValue();
+    }
+}
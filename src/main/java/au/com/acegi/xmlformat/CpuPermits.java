@@ -0,0 +1,105 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import java.io.Closeable;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limits the number of threads parsing and serializing documents at the same time, and keeps the parsers, buffers and
+ * writers they reuse. Virtual threads are created for every file, so unlike platform threads they cannot keep these
+ * objects themselves: each thread takes them from this pool once it holds a permit, and gives them back once done.
+ * The pool never keeps more of them than there are permits.
+ */
+final class CpuPermits {
+
+    private final BlockingQueue<FormatUtil.Resources> pool;
+    private final Semaphore permits;
+
+    /**
+     * Creates the permits.
+     *
+     * @param permits
+     *            the number of threads that can format a document at the same time
+     */
+    CpuPermits(final int permits) {
+        this.permits = new Semaphore(permits);
+        this.pool = new ArrayBlockingQueue<>(permits);
+    }
+
+    /**
+     * Waits for a permit, then takes the objects reused to format a document.
+     *
+     * @return the permit, to be closed once the objects are no longer used
+     *
+     * @throws InterruptedIOException
+     *             if the thread was interrupted while waiting
+     */
+    Permit acquire() throws InterruptedIOException {
+        try {
+            permits.acquire();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            final InterruptedIOException ioe = new InterruptedIOException("Interrupted waiting for a processor");
+            ioe.initCause(ex);
+            throw ioe;
+        }
+        final FormatUtil.Resources resources = pool.poll();
+        return new Permit(resources == null ? new FormatUtil.Resources() : resources);
+    }
+
+    int available() {
+        return permits.availablePermits();
+    }
+
+    /**
+     * A permit held by one thread, with the objects it reuses.
+     */
+    final class Permit implements Closeable {
+        private boolean held = true;
+        private final FormatUtil.Resources resources;
+
+        Permit(final FormatUtil.Resources resources) {
+            this.resources = resources;
+        }
+
+        FormatUtil.Resources getResources() {
+            return resources;
+        }
+
+        /**
+         * Lets another thread format a document while this one still uses its buffer, such as to write it to a file.
+         */
+        void releaseProcessor() {
+            if (held) {
+                held = false;
+                permits.release();
+            }
+        }
+
+        @Override
+        public void close() {
+            releaseProcessor();
+            // Other threads may have created their own while these were in use, only as many as permits are kept
+            pool.offer(resources);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Persistent record of the time each file took to process, used to start the slowest files first. Files without a
+ * recorded duration are estimated from their size, at the average speed of the recorded files.
+ */
+final class FileDurations {
+
+    private static final String INDEX = "durations.properties";
+
+    private final Path index;
+    private final Map<String, Duration> previous = new HashMap<>();
+    private final Map<String, Duration> current = new HashMap<>();
+    private final Set<String> estimated = new HashSet<>();
+    private long previousBytes;
+    private long previousNanos;
+
+    private FileDurations(final Path index) {
+        this.index = index;
+    }
+
+    /**
+     * Loads the durations stored in the given directory. A missing or unreadable index results in no durations.
+     *
+     * @param directory
+     *            where durations are stored
+     *
+     * @return the durations
+     */
+    static FileDurations load(final File directory) {
+        final FileDurations durations = new FileDurations(directory.toPath().resolve(INDEX));
+        if (Files.isRegularFile(durations.index)) {
+            final Properties props = new Properties();
+            try (InputStream in = Files.newInputStream(durations.index)) {
+                props.load(in);
+            } catch (final IOException | IllegalArgumentException ex) {
+                return durations;
+            }
+            for (final String key : props.stringPropertyNames()) {
+                final Duration duration = Duration.parse(props.getProperty(key));
+                if (duration != null) {
+                    durations.previous.put(key, duration);
+                    durations.previousBytes += duration.bytes;
+                    durations.previousNanos += duration.nanos;
+                }
+            }
+        }
+        return durations;
+    }
+
+    /**
+     * Estimates how long a file will take to process.
+     *
+     * @param name
+     *            path of the file relative to the base directory
+     * @param bytes
+     *            the current size of the file
+     *
+     * @return the duration of the file last time, or an estimate in nanoseconds based on its size
+     */
+    long estimate(final String name, final long bytes) {
+        estimated.add(name);
+        final Duration duration = previous.get(name);
+        if (duration != null) {
+            return duration.nanos;
+        }
+        if (previousBytes == 0) {
+            return bytes;
+        }
+        return (long) ((double) bytes * previousNanos / previousBytes);
+    }
+
+    /**
+     * Records the time a file took to process during this execution.
+     *
+     * @param name
+     *            path of the file relative to the base directory
+     * @param bytes
+     *            the size of the file
+     * @param nanos
+     *            the time spent processing the file
+     */
+    void record(final String name, final long bytes, final long nanos) {
+        current.put(name, new Duration(bytes, nanos));
+    }
+
+    /**
+     * Writes the durations recorded during this execution, keeping the previous durations of the files that were
+     * estimated but not processed this time. Other files are dropped, which keeps the index bounded by the current
+     * include set. The index is replaced atomically where supported.
+     *
+     * @throws IOException
+     *             if the index could not be written
+     */
+    void save() throws IOException {
+        if (current.isEmpty()) {
+            return;
+        }
+        final Properties props = new Properties();
+        for (final String name : estimated) {
+            final Duration duration = previous.get(name);
+            if (duration != null) {
+                props.setProperty(name, duration.toString());
+            }
+        }
+        for (final Map.Entry<String, Duration> entry : current.entrySet()) {
+            props.setProperty(entry.getKey(), entry.getValue().toString());
+        }
+
+        final Path dir = index.getParent();
+        Files.createDirectories(dir);
+        final Path tmp = Files.createTempFile(dir, INDEX, ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                props.store(out, "xml-format durations");
+            }
+            try {
+                Files.move(tmp, index, REPLACE_EXISTING, ATOMIC_MOVE);
+            } catch (final AtomicMoveNotSupportedException ex) {
+                Files.move(tmp, index, REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Size of a file and the time it took to process.
+     */
+    private static final class Duration {
+        private final long bytes;
+        private final long nanos;
+
+        Duration(final long bytes, final long nanos) {
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+
+        static Duration parse(final String value) {
+            final int comma = value.indexOf(',');
+            if (comma < 0) {
+                return null;
+            }
+            try {
+                return new Duration(Long.parseLong(value.substring(0, comma)),
+                        Long.parseLong(value.substring(comma + 1)));
+            } catch (final NumberFormatException ex) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return bytes + "," + nanos;
+        }
+    }
+}
@@ -0,0 +1,422 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.codehaus.plexus.util.AbstractScanner;
+import org.codehaus.plexus.util.SelectorUtils;
+import org.eclipse.jgit.ignore.IgnoreNode;
+
+/**
+ * Finds the files matching include and exclude patterns below a base directory, using the same pattern semantics as
+ * {@link org.codehaus.plexus.util.DirectoryScanner}. Unlike it:
+ * <ul>
+ * <li>Directories are only entered if their content could be included and not excluded as a whole, so excluded trees
+ * such as <code>node_modules/**</code> are never walked</li>
+ * <li>Subdirectories are walked in parallel</li>
+ * <li>Files and directories ignored by Git can optionally be skipped</li>
+ * <li>The listings of the most recently used directories are cached for the lifetime of the JVM, and reused while
+ * the directory is unmodified</li>
+ * <li>Files are returned sorted by name</li>
+ * </ul>
+ */
+final class FileFinder extends AbstractScanner {
+
+    private static final String GIT_DIR = ".git";
+    private static final String GIT_IGNORE = ".gitignore";
+
+    /**
+     * The maximum number of cached directory listings, the least recently used being evicted first.
+     */
+    private static final int MAX_LISTINGS = 20_000;
+
+    private static final Map<Path, Listing> LISTINGS = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Directories modified this close to being listed may still be changing within the timestamp resolution of the
+     * file system, so their listing is not reused.
+     */
+    private static final long RACY_WINDOW_MILLIS = 2_000L;
+
+    private static final String SUBTREE_SUFFIX = File.separator + "**";
+
+    private final File basedir;
+    private Collection<String> candidates;
+    private String[] excludedTrees;
+    private String[] includedFiles;
+    private int parallelism = 1;
+    private boolean useGitIgnore;
+
+    /**
+     * Creates a finder.
+     *
+     * @param basedir
+     *            directory to search
+     */
+    FileFinder(final File basedir) {
+        this.basedir = basedir;
+    }
+
+    @Override
+    public File getBasedir() {
+        return basedir;
+    }
+
+    /**
+     * Directories are not collected, only files are.
+     *
+     * @return an empty array
+     */
+    @Override
+    public String[] getIncludedDirectories() {
+        return new String[0];
+    }
+
+    @Override
+    public String[] getIncludedFiles() {
+        return includedFiles;
+    }
+
+    /**
+     * Restricts the search to the given files instead of walking the base directory. Git ignore rules are not applied
+     * to them, as Git itself never ignores tracked files.
+     *
+     * @param candidates
+     *            paths relative to the base directory, using the platform separator, or null to walk the directory
+     */
+    void setCandidates(final Collection<String> candidates) {
+        this.candidates = candidates;
+    }
+
+    /**
+     * Sets the number of threads walking the directories.
+     *
+     * @param parallelism
+     *            number of threads
+     */
+    void setParallelism(final int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets whether the files ignored by Git are skipped, reading the <code>.gitignore</code> files of the base
+     * directory, of its subdirectories and of its parents up to the root of the repository, as well as
+     * <code>.git/info/exclude</code>.
+     *
+     * @param useGitIgnore
+     *            true to skip the ignored files
+     */
+    void setUseGitIgnore(final boolean useGitIgnore) {
+        this.useGitIgnore = useGitIgnore;
+    }
+
+    @Override
+    public void scan() {
+        if (basedir == null || !basedir.isDirectory()) {
+            throw new IllegalStateException("Base directory " + basedir + " is not a directory");
+        }
+        setupDefaultFilters();
+        setupMatchPatterns();
+        excludedTrees = findExcludedTrees();
+
+        if (candidates != null) {
+            includedFiles = candidates.stream()
+                    .filter(name -> isIncluded(name) && !isExcluded(name) && new File(basedir, name).isFile())
+                    .sorted().toArray(String[]::new);
+            return;
+        }
+
+        final Path base = basedir.toPath().toAbsolutePath().normalize();
+        final List<IgnoreScope> scopes = useGitIgnore ? parentScopes(base) : Collections.<IgnoreScope>emptyList();
+        final Walk root = new Walk(base, "", scopes);
+
+        final List<String> files;
+        if (parallelism > 1) {
+            final ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                files = pool.invoke(root);
+            } finally {
+                pool.shutdown();
+            }
+        } else {
+            files = root.compute();
+        }
+
+        includedFiles = files.toArray(new String[0]);
+        Arrays.sort(includedFiles);
+    }
+
+    /**
+     * Removes all cached directory listings.
+     */
+    static void clearCache() {
+        synchronized (LISTINGS) {
+            LISTINGS.clear();
+        }
+    }
+
+    /**
+     * Patterns excluding a whole directory tree, such as <code>**&#47;node_modules/**</code>, stripped of their
+     * trailing wildcard so they can be matched against the directory itself.
+     */
+    private String[] findExcludedTrees() {
+        final List<String> trees = new ArrayList<>();
+        for (final String exclude : excludes) {
+            if (exclude.endsWith(SUBTREE_SUFFIX) && !exclude.startsWith(SelectorUtils.REGEX_HANDLER_PREFIX)) {
+                trees.add(exclude.substring(0, exclude.length() - SUBTREE_SUFFIX.length()));
+            }
+        }
+        return trees.toArray(new String[0]);
+    }
+
+    private boolean isExcludedTree(final String name) {
+        for (final String tree : excludedTrees) {
+            if (SelectorUtils.matchPath(tree, name, File.separator, isCaseSensitive)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The ignore files of the repository holding the base directory, outside of the base directory itself.
+     */
+    private static List<IgnoreScope> parentScopes(final Path base) {
+        final List<Path> parents = new ArrayList<>();
+        Path root = null;
+        for (Path dir = base; dir != null; dir = dir.getParent()) {
+            parents.add(dir);
+            if (Files.exists(dir.resolve(GIT_DIR))) {
+                root = dir;
+                break;
+            }
+        }
+
+        final List<IgnoreScope> scopes = new ArrayList<>();
+        if (root == null) {
+            return scopes;
+        }
+        addScope(scopes, root, root.resolve(GIT_DIR).resolve("info").resolve("exclude"));
+        // Outermost first, the base directory itself is handled by the walk
+        for (int i = parents.size() - 1; i > 0; i--) {
+            addScope(scopes, parents.get(i), parents.get(i).resolve(GIT_IGNORE));
+        }
+        return scopes;
+    }
+
+    private static void addScope(final List<IgnoreScope> scopes, final Path dir, final Path file) {
+        try {
+            final IgnoreNode ignore = loadIgnore(file);
+            if (ignore != null) {
+                scopes.add(new IgnoreScope(dir, ignore));
+            }
+        } catch (final IOException ex) {
+            // Unreadable ignore files are treated like DirectoryScanner treats unreadable directories: as empty
+        }
+    }
+
+    /**
+     * Reads the rules of an ignore file with the same parser as Git itself.
+     *
+     * @return the rules, or null if the file does not exist or holds no rule
+     */
+    private static IgnoreNode loadIgnore(final Path file) throws IOException {
+        final IgnoreNode ignore = new IgnoreNode();
+        try (InputStream in = Files.newInputStream(file)) {
+            ignore.parse(file.toString(), in);
+        } catch (final NoSuchFileException ex) {
+            return null;
+        }
+        return ignore.getRules().isEmpty() ? null : ignore;
+    }
+
+    private static boolean isGitIgnored(final List<IgnoreScope> scopes, final Path path, final boolean directory) {
+        // Deeper files take precedence over the files of their parents
+        for (int i = scopes.size() - 1; i >= 0; i--) {
+            final Boolean ignored = scopes.get(i).isIgnored(path, directory);
+            if (ignored != null) {
+                return ignored;
+            }
+        }
+        return false;
+    }
+
+    private static Listing list(final Path dir) {
+        FileTime modified = null;
+        try {
+            modified = Files.getLastModifiedTime(dir);
+            final Listing cached;
+            synchronized (LISTINGS) {
+                cached = LISTINGS.get(dir);
+            }
+            if (cached != null && cached.modified.equals(modified)) {
+                return cached;
+            }
+        } catch (final IOException ex) {
+            // Listed below, which fails the same way
+        }
+
+        final long listed = System.currentTimeMillis();
+        final List<String> directories = new ArrayList<>();
+        final List<String> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (final Path entry : stream) {
+                final String name = entry.getFileName().toString();
+                if (Files.isDirectory(entry)) {
+                    directories.add(name);
+                } else if (Files.isRegularFile(entry)) {
+                    files.add(name);
+                }
+            }
+        } catch (final IOException ex) {
+            // Same as DirectoryScanner: a directory that cannot be listed is considered empty
+            return new Listing(null, directories, files);
+        }
+
+        final Listing listing = new Listing(modified, directories, files);
+        synchronized (LISTINGS) {
+            if (modified != null && listed - modified.toMillis() > RACY_WINDOW_MILLIS) {
+                LISTINGS.put(dir, listing);
+                if (LISTINGS.size() > MAX_LISTINGS) {
+                    LISTINGS.remove(LISTINGS.keySet().iterator().next());
+                }
+            } else {
+                LISTINGS.remove(dir);
+            }
+        }
+        return listing;
+    }
+
+    /**
+     * The ignore rules of a directory.
+     */
+    private static final class IgnoreScope {
+        private final Path dir;
+        private final IgnoreNode ignore;
+
+        IgnoreScope(final Path dir, final IgnoreNode ignore) {
+            this.dir = dir;
+            this.ignore = ignore;
+        }
+
+        Boolean isIgnored(final Path path, final boolean directory) {
+            final Path relative = dir.relativize(path);
+            return ignore.checkIgnored(relative.toString().replace(File.separatorChar, '/'), directory);
+        }
+    }
+
+    /**
+     * The names of the entries of a directory.
+     */
+    private static final class Listing {
+        private final List<String> directories;
+        private final List<String> files;
+        private final FileTime modified;
+
+        Listing(final FileTime modified, final List<String> directories, final List<String> files) {
+            this.modified = modified;
+            this.directories = directories;
+            this.files = files;
+        }
+    }
+
+    /**
+     * Collects the included files of a directory, forking a task per subdirectory worth entering.
+     */
+    private final class Walk extends RecursiveTask<List<String>> {
+        private static final long serialVersionUID = 1L;
+
+        private final Path dir;
+        private final transient List<IgnoreScope> scopes;
+        private final String vpath;
+
+        Walk(final Path dir, final String vpath, final List<IgnoreScope> scopes) {
+            this.dir = dir;
+            this.vpath = vpath;
+            this.scopes = scopes;
+        }
+
+        @Override
+        protected List<String> compute() {
+            List<IgnoreScope> current = scopes;
+            if (useGitIgnore) {
+                final IgnoreNode ignore;
+                try {
+                    ignore = loadIgnore(dir.resolve(GIT_IGNORE));
+                } catch (final IOException ex) {
+                    return Collections.emptyList();
+                }
+                if (ignore != null) {
+                    current = new ArrayList<>(scopes);
+                    current.add(new IgnoreScope(dir, ignore));
+                }
+            }
+
+            final Listing listing = list(dir);
+            final List<Walk> subtasks = new ArrayList<>();
+            for (final String child : listing.directories) {
+                final String name = vpath + child;
+                if (couldHoldIncluded(name) && !isExcludedTree(name) && !isIgnored(current, child, true)) {
+                    subtasks.add(new Walk(dir.resolve(child), name + File.separator, current));
+                }
+            }
+            if (parallelism > 1) {
+                invokeAll(subtasks);
+            }
+
+            final List<String> found = new ArrayList<>();
+            for (final String child : listing.files) {
+                final String name = vpath + child;
+                if (isIncluded(name) && !isExcluded(name) && !isIgnored(current, child, false)) {
+                    found.add(name);
+                }
+            }
+            for (final Walk subtask : subtasks) {
+                found.addAll(parallelism > 1 ? subtask.join() : subtask.compute());
+            }
+            return Collections.unmodifiableList(found);
+        }
+
+        private boolean isIgnored(final List<IgnoreScope> current, final String child, final boolean directory) {
+            if (!useGitIgnore) {
+                return false;
+            }
+            if (directory && GIT_DIR.equals(child)) {
+                return true;
+            }
+            return isGitIgnored(current, dir.resolve(child), directory);
+        }
+    }
+}
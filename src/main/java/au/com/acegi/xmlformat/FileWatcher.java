@@ -0,0 +1,216 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import au.com.acegi.xmlformat.ResultCache.State;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Watches a directory tree and reports the files that changed. Bursts of events for the same file, as produced by
+ * editors saving through temporary files, are reported once after the file has been quiet for the debounce delay.
+ * Changes made by the listener itself are not reported back to it.
+ */
+final class FileWatcher implements Closeable {
+
+    private final long debounceNanos;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    private final Predicate<File> included;
+    private final Consumer<File> listener;
+    private final Map<File, Long> pending = new LinkedHashMap<>();
+    private final WatchService service;
+    private final Predicate<File> skippedDirectory;
+    private final Map<File, State> written = new HashMap<>();
+
+    /**
+     * Starts watching a directory tree.
+     *
+     * @param root
+     *            the directory to watch, with its subdirectories
+     * @param debounceMillis
+     *            how long a file must be quiet before being reported
+     * @param skippedDirectory
+     *            selects the directories that are not watched
+     * @param included
+     *            selects the files that are reported
+     * @param listener
+     *            receives the changed files, and may write them
+     *
+     * @throws IOException
+     *             if the directories could not be watched
+     */
+    FileWatcher(final File root, final long debounceMillis, final Predicate<File> skippedDirectory,
+            final Predicate<File> included, final Consumer<File> listener) throws IOException {
+        this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+        this.skippedDirectory = skippedDirectory;
+        this.included = included;
+        this.listener = listener;
+        this.service = root.toPath().getFileSystem().newWatchService();
+        register(root.toPath(), false);
+    }
+
+    /**
+     * The number of watched directories.
+     *
+     * @return the number of directories
+     */
+    int getDirectories() {
+        return directories.size();
+    }
+
+    /**
+     * Reports changes until the watcher is closed.
+     *
+     * @throws InterruptedException
+     *             if the calling thread is interrupted
+     * @throws IOException
+     *             if a new directory could not be watched
+     */
+    void run() throws InterruptedException, IOException {
+        try {
+            for (;;) {
+                final WatchKey key;
+                if (pending.isEmpty()) {
+                    key = service.take();
+                } else {
+                    final long wait = pending.values().iterator().next() + debounceNanos - System.nanoTime();
+                    key = service.poll(Math.max(0, wait), TimeUnit.NANOSECONDS);
+                }
+                if (key != null) {
+                    handle(key);
+                }
+                reportQuiet();
+            }
+        } catch (final ClosedWatchServiceException ex) {
+            // Closed by another thread
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        service.close();
+    }
+
+    private void handle(final WatchKey key) throws IOException {
+        final Path dir = directories.get(key);
+        for (final WatchEvent<?> event : key.pollEvents()) {
+            if (dir == null || event.kind() == OVERFLOW) {
+                continue;
+            }
+            final Path path = dir.resolve((Path) event.context());
+            final File file = path.toFile();
+            if (event.kind() == ENTRY_DELETE) {
+                pending.remove(file);
+                written.remove(file);
+            } else if (Files.isDirectory(path)) {
+                if (event.kind() == ENTRY_CREATE) {
+                    register(path, true);
+                }
+            } else {
+                changed(file);
+            }
+        }
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+    }
+
+    private void changed(final File file) {
+        // Keep the pending files ordered by their latest event, so the head is always the first to become quiet
+        pending.remove(file);
+        pending.put(file, System.nanoTime());
+    }
+
+    /**
+     * Registers a directory and its subdirectories, reporting the files they hold if they were created after the
+     * watch started, as when a directory is copied or moved in.
+     */
+    private void register(final Path dir, final boolean created) throws IOException {
+        if (skippedDirectory.test(dir.toFile())) {
+            return;
+        }
+        directories.put(dir.register(service, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), dir);
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(dir)) {
+            for (final Path child : children) {
+                if (Files.isDirectory(child)) {
+                    register(child, created);
+                } else if (created) {
+                    changed(child.toFile());
+                }
+            }
+        }
+    }
+
+    private void reportQuiet() {
+        final long now = System.nanoTime();
+        final Iterator<Map.Entry<File, Long>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            final Map.Entry<File, Long> entry = it.next();
+            if (now - entry.getValue() < debounceNanos) {
+                return;
+            }
+            it.remove();
+            report(entry.getKey());
+        }
+    }
+
+    private void report(final File file) {
+        final State state = stateOf(file);
+        if (state == null || state.equals(written.get(file)) || !included.test(file)) {
+            return;
+        }
+        listener.accept(file);
+        // Remember the state left by the listener, so the events caused by its own writes are ignored
+        final State after = stateOf(file);
+        if (after == null) {
+            written.remove(file);
+        } else {
+            written.put(file, after);
+        }
+    }
+
+    private static State stateOf(final File file) {
+        try {
+            return file.isFile() ? State.of(file) : null;
+        } catch (final IOException ex) {
+            // Deleted since the event
+            return null;
+        }
+    }
+}
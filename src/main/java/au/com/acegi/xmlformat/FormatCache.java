@@ -0,0 +1,295 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import static au.com.acegi.xmlformat.IOUtil.hash;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Persistent record of the files that were found to be correctly formatted by a previous execution. A file whose size
+ * and modification time still match its entry is known to be formatted without being parsed again. If only the
+ * modification time differs (for example after a fresh checkout), the content hash is compared instead.
+ * <p>
+ * Each formatter configuration gets its own index file, named after a hash of {@link XmlOutputFormat#fingerprint()}
+ * and of the hash function, so changing any formatting option invalidates every entry. Content is hashed with
+ * {@link ContentHash#XXHASH64}, whose 64 bits make it practically impossible for a changed file to be mistaken for
+ * the formatted one.
+ */
+final class FormatCache {
+
+    /**
+     * The hash of the content of files, also used by {@link SharedCache}.
+     */
+    static final ContentHash HASH = ContentHash.XXHASH64;
+
+    private static final String INDEX_SUFFIX = ".properties";
+    private static final long RACY_WINDOW_MILLIS = 2_000L;
+    private static final long UNKNOWN_MODIFIED = -1L;
+
+    private final File baseDirectory;
+    private final Set<String> checked = ConcurrentHashMap.newKeySet();
+    private final Path index;
+    private final ConcurrentMap<String, Entry> previous = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Entry> current = new ConcurrentHashMap<>();
+
+    private FormatCache(final Path index, final File baseDirectory) {
+        this.index = index;
+        this.baseDirectory = baseDirectory;
+    }
+
+    /**
+     * Loads the cache stored in the given directory for the given formatter configuration. A missing or unreadable
+     * index results in an empty cache.
+     *
+     * @param directory
+     *            where cache indexes are stored
+     * @param baseDirectory
+     *            directory the names of the cached files are relative to
+     * @param fmt
+     *            format configuration the cached results apply to
+     *
+     * @return the cache
+     */
+    static FormatCache load(final File directory, final File baseDirectory, final XmlOutputFormat fmt) {
+        final String name = Long.toHexString(hashOf(fmt.fingerprint() + ";hash=" + HASH)) + INDEX_SUFFIX;
+        final FormatCache cache = new FormatCache(directory.toPath().resolve(name), baseDirectory);
+        if (Files.isRegularFile(cache.index)) {
+            final Properties props = new Properties();
+            try (InputStream in = Files.newInputStream(cache.index)) {
+                props.load(in);
+            } catch (final IOException | IllegalArgumentException ex) {
+                // A corrupt index is treated like an empty one
+                return cache;
+            }
+            for (final String key : props.stringPropertyNames()) {
+                final Entry entry = Entry.parse(props.getProperty(key));
+                if (entry != null) {
+                    cache.previous.put(key, entry);
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Checks whether the file is known to be correctly formatted, without parsing it.
+     *
+     * @param name
+     *            path of the file relative to the base directory
+     * @param file
+     *            the file itself
+     *
+     * @return true if the file was correctly formatted last time and has not changed since
+     *
+     * @throws IOException
+     *             if the file could not be read to verify its hash
+     */
+    boolean isFormatted(final String name, final File file) throws IOException {
+        checked.add(name);
+        final Entry entry = previous.get(name);
+        if (entry == null) {
+            return false;
+        }
+        final long size = file.length();
+        if (entry.size != size) {
+            return false;
+        }
+        final long modified = file.lastModified();
+        if (entry.modified == modified) {
+            current.put(name, entry);
+            return true;
+        }
+        if (entry.hash == hash(file, HASH)) {
+            current.put(name, Entry.of(size, modified, entry.hash));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Keeps the entry of a file found to be correctly formatted without checking this cache, such as by the in-memory
+     * cache, so that it is still known once that cache is gone. The current state of the file is recorded if its entry
+     * is missing or out of date.
+     *
+     * @param name
+     *            path of the file relative to the base directory
+     * @param file
+     *            the file itself
+     *
+     * @throws IOException
+     *             if the file could not be read
+     */
+    void retain(final String name, final File file) throws IOException {
+        checked.add(name);
+        final Entry entry = previous.get(name);
+        if (entry != null && entry.size == file.length() && entry.modified == file.lastModified()) {
+            current.put(name, entry);
+        } else {
+            recordFormatted(name, file);
+        }
+    }
+
+    /**
+     * Records the file as correctly formatted in its current state.
+     *
+     * @param name
+     *            path of the file relative to the base directory
+     * @param file
+     *            the file itself
+     *
+     * @throws IOException
+     *             if the file could not be read
+     */
+    void recordFormatted(final String name, final File file) throws IOException {
+        recordFormatted(name, file, hash(file, HASH));
+    }
+
+    /**
+     * Records the file as correctly formatted in its current state, whose hash is already known.
+     *
+     * @param name
+     *            path of the file relative to the base directory
+     * @param file
+     *            the file itself
+     * @param hash
+     *            the {@link #HASH} of the current content of the file
+     */
+    void recordFormatted(final String name, final File file, final long hash) {
+        current.put(name, Entry.of(file.length(), file.lastModified(), hash));
+    }
+
+    /**
+     * Writes the entries recorded during this execution, keeping the previous entries of the files that were not
+     * checked this time (for example because only changed files were processed, or the build stopped early). Entries
+     * of files that were checked but not recorded, or that no longer exist, are dropped. The index is replaced
+     * atomically where supported, so concurrent builds never observe a partially written file.
+     *
+     * @throws IOException
+     *             if the index could not be written
+     */
+    void save() throws IOException {
+        final Map<String, Entry> entries = new HashMap<>(current);
+        for (final Map.Entry<String, Entry> entry : previous.entrySet()) {
+            final String name = entry.getKey();
+            if (!checked.contains(name) && !entries.containsKey(name) && new File(baseDirectory, name).isFile()) {
+                entries.put(name, entry.getValue());
+            }
+        }
+        if (entries.equals(previous)) {
+            return;
+        }
+        final Properties props = new Properties();
+        for (final Map.Entry<String, Entry> entry : entries.entrySet()) {
+            props.setProperty(entry.getKey(), entry.getValue().toString());
+        }
+
+        final Path dir = index.getParent();
+        Files.createDirectories(dir);
+        final Path tmp = Files.createTempFile(dir, index.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                props.store(out, "xml-format cache");
+            }
+            try {
+                Files.move(tmp, index, REPLACE_EXISTING, ATOMIC_MOVE);
+            } catch (final AtomicMoveNotSupportedException ex) {
+                Files.move(tmp, index, REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static long hashOf(final String text) {
+        return HASH.hash(ByteBuffer.wrap(text.getBytes(UTF_8)));
+    }
+
+    /**
+     * State of a file when it was last known to be correctly formatted.
+     */
+    private static final class Entry {
+        private final long hash;
+        private final long modified;
+        private final long size;
+
+        Entry(final long size, final long modified, final long hash) {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+        }
+
+        static Entry of(final long size, final long modified, final long hash) {
+            // A file modified within the timestamp granularity of the file system could change again without its
+            // modification time changing, so such entries always have their hash verified
+            final boolean racy = System.currentTimeMillis() - modified < RACY_WINDOW_MILLIS;
+            return new Entry(size, racy ? UNKNOWN_MODIFIED : modified, hash);
+        }
+
+        static Entry parse(final String value) {
+            final int first = value.indexOf(',');
+            final int second = value.indexOf(',', first + 1);
+            if (first < 0 || second < 0) {
+                return null;
+            }
+            try {
+                return new Entry(Long.parseLong(value.substring(0, first)),
+                        Long.parseLong(value.substring(first + 1, second)),
+                        Long.parseLong(value.substring(second + 1)));
+            } catch (final NumberFormatException ex) {
+                return null;
+            }
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Entry)) {
+                return false;
+            }
+            final Entry other = (Entry) obj;
+            return size == other.size && modified == other.modified && hash == other.hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(size) * 31 + Long.hashCode(modified);
+        }
+
+        @Override
+        public String toString() {
+            return size + "," + modified + "," + hash;
+        }
+    }
+}
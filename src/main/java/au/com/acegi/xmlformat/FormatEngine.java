@@ -0,0 +1,36 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+/**
+ * Engines available to format a document. Both produce identical output.
+ */
+public enum FormatEngine {
+
+    /**
+     * Builds a complete DOM4J document before writing it. Memory use grows with the size of the document.
+     */
+    DOM,
+
+    /**
+     * Writes the document while it is being parsed, keeping only the elements currently open in memory. Suited to very
+     * large documents.
+     */
+    STREAMING
+
+}
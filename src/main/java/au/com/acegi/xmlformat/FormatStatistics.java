@@ -0,0 +1,133 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the work done by {@link FormatUtil} with one format configuration, safe to update from several threads.
+ * Time spent in each {@link Phase} is counted for the file currently processed by each thread.
+ */
+final class FormatStatistics {
+
+    /**
+     * Shared by all instances, as a thread processes a single file at a time.
+     */
+    private static final ThreadLocal<Map<Phase, Long>> FILE_NANOS = ThreadLocal.withInitial(
+            () -> new EnumMap<>(Phase.class));
+
+    private final LongAdder files = new LongAdder();
+    private final LongAdder fastPath = new LongAdder();
+    private final LongAdder lineEndingsOnly = new LongAdder();
+
+    /**
+     * Forgets the phase times kept by the calling thread, once it has no file left to process.
+     */
+    static void releaseThread() {
+        FILE_NANOS.remove();
+    }
+
+    /**
+     * The number of files checked or formatted.
+     *
+     * @return the number of files
+     */
+    long getFiles() {
+        return files.sum();
+    }
+
+    /**
+     * The number of files proven formatted by {@link FormatVerifier}, without running the formatter.
+     *
+     * @return the number of files that took the fast path
+     */
+    long getFastPath() {
+        return fastPath.sum();
+    }
+
+    /**
+     * The number of files whose formatted content was proven to only differ by its line endings, without running the
+     * formatter.
+     *
+     * @return the number of files whose line endings were fixed
+     */
+    long getLineEndingsOnly() {
+        return lineEndingsOnly.sum();
+    }
+
+    /**
+     * The time spent in all phases by the file currently processed by the calling thread.
+     *
+     * @return the time in nanoseconds
+     */
+    long getFileNanos() {
+        long sum = 0;
+        for (final long nanos : FILE_NANOS.get().values()) {
+            sum += nanos;
+        }
+        return sum;
+    }
+
+    /**
+     * Adds time spent in a phase by the file currently processed by the calling thread.
+     *
+     * @param phase
+     *            the phase
+     * @param nanos
+     *            the time in nanoseconds
+     */
+    void time(final Phase phase, final long nanos) {
+        FILE_NANOS.get().merge(phase, nanos, Long::sum);
+    }
+
+    /**
+     * Returns the time spent in each phase by the file processed by the calling thread, and starts counting for the
+     * next file.
+     *
+     * @return the time in nanoseconds of each phase the file went through
+     */
+    Map<Phase, Long> takeFileNanos() {
+        final Map<Phase, Long> nanos = FILE_NANOS.get();
+        final Map<Phase, Long> taken = new EnumMap<>(Phase.class);
+        taken.putAll(nanos);
+        nanos.clear();
+        return taken;
+    }
+
+    /**
+     * Records a file being checked or formatted.
+     *
+     * @param proven
+     *            true if the file was proven formatted without running the formatter
+     */
+    void record(final boolean proven) {
+        files.increment();
+        if (proven) {
+            fastPath.increment();
+        }
+    }
+
+    /**
+     * Records a file found to only differ from its formatted content by its line endings.
+     */
+    void recordLineEndingsOnly() {
+        lineEndingsOnly.increment();
+    }
+}
@@ -17,24 +17,20 @@
  */
 package au.com.acegi.xmlformat;
 
-import static java.io.File.createTempFile;
-import static java.nio.file.Files.copy;
-import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
-
-import static au.com.acegi.xmlformat.IOUtil.hash;
+import au.com.acegi.xmlformat.ComparingOutputStream.Difference;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
-import java.nio.file.Path;
 
 import org.dom4j.Document;
 import org.dom4j.DocumentException;
-import org.dom4j.io.SAXReader;
 import org.dom4j.io.XMLWriter;
 import org.xml.sax.EntityResolver;
 import org.xml.sax.InputSource;
@@ -45,7 +41,19 @@ import org.xml.sax.SAXException;
  */
 final class FormatUtil {
 
-    private static final String TMP_FILE_PREFIX = FormatUtil.class.getSimpleName();
+    /**
+     * Resolves every external entity to an empty document, so formatting never reaches out to the network.
+     */
+    static final EntityResolver EMPTY_ENTITY_RESOLVER = new EntityResolver() {
+        @Override
+        public InputSource resolveEntity(final String publicId, final String systemId)
+                throws SAXException, IOException {
+            return new InputSource(new StringReader(""));
+        }
+    };
+
+    private static final ThreadLocal<OutputBuffer> BUFFERS = ThreadLocal.withInitial(OutputBuffer::new);
+    private static final ThreadLocal<ReusableWriter> WRITERS = new ThreadLocal<>();
 
     private FormatUtil() {
     }
@@ -69,19 +77,87 @@ final class FormatUtil {
      */
     static void format(final InputStream in, final OutputStream out, final XmlOutputFormat fmt)
             throws DocumentException, IOException {
-        final SAXReader reader = new SAXReader();
-        reader.setEntityResolver(new EntityResolver() {
-            @Override
-            public InputSource resolveEntity(final String publicId, final String systemId)
-                    throws SAXException, IOException {
-                return new InputSource(new StringReader(""));
+        format(in, out, fmt, fmt.getEngine());
+    }
+
+    private static void format(final InputStream in, final OutputStream out, final XmlOutputFormat fmt,
+            final FormatEngine engine) throws DocumentException, IOException {
+        final CpuPermits cpuPermits = fmt.getCpuPermits();
+        if (cpuPermits == null) {
+            formatUnlimited(in, out, fmt, engine, null);
+            return;
+        }
+        try (CpuPermits.Permit permit = cpuPermits.acquire()) {
+            formatUnlimited(in, out, fmt, engine, permit.getResources());
+        }
+    }
+
+    /**
+     * Formats a document with the given resources, or with those of the calling thread if null.
+     */
+    private static void formatUnlimited(final InputStream in, final OutputStream out, final XmlOutputFormat fmt,
+            final FormatEngine engine, final Resources resources) throws DocumentException, IOException {
+        final FormatStatistics statistics = fmt.getStatistics();
+        final long start = System.nanoTime();
+        final ParserContext parser = resources == null ? ParserContext.acquire() : resources.parser;
+        if (engine == FormatEngine.STREAMING) {
+            try {
+                StreamingFormatter.format(in, out, fmt, parser);
+            } finally {
+                parser.release();
+                statistics.time(Phase.PARSE, System.nanoTime() - start);
             }
-        });
-        final Document xmlDoc = reader.read(in);
+            return;
+        }
+
+        final Document xmlDoc;
+        try {
+            xmlDoc = parser.read(in);
+        } finally {
+            parser.release();
+            statistics.time(Phase.PARSE, System.nanoTime() - start);
+        }
+
+        final long serializeStart = System.nanoTime();
+        boolean written = false;
+        try {
+            final XMLWriter xmlWriter = out instanceof OutputBuffer
+                    ? reusableWriter((OutputBuffer) out, fmt, resources) : getXmlWriter(out, fmt);
+            xmlWriter.write(xmlDoc);
+            xmlWriter.flush();
+            written = true;
+        } finally {
+            if (!written) {
+                // A writer interrupted in the middle of a document keeps its indentation and namespaces
+                if (resources == null) {
+                    WRITERS.remove();
+                } else {
+                    resources.writer = null;
+                }
+            }
+            statistics.time(Phase.SERIALIZE, System.nanoTime() - serializeStart);
+        }
+    }
 
-        final XMLWriter xmlWriter = getXmlWriter(out, fmt);
-        xmlWriter.write(xmlDoc);
-        xmlWriter.flush();
+    /**
+     * Returns the writer of the given resources, or of the calling thread if null, for the given buffer and
+     * configuration, creating it on first use. Once a document has been completely written, a writer is back to its
+     * initial state, so its character encoder and buffers can be reused for the next document.
+     */
+    private static XMLWriter reusableWriter(final OutputBuffer out, final XmlOutputFormat fmt,
+            final Resources resources) throws UnsupportedEncodingException {
+        final ReusableWriter reusable = resources == null ? WRITERS.get() : resources.writer;
+        if (reusable != null && reusable.isFor(out, fmt)) {
+            return reusable.writer;
+        }
+        final XMLWriter writer = getXmlWriter(out, fmt);
+        final ReusableWriter created = new ReusableWriter(out, fmt, writer);
+        if (resources == null) {
+            WRITERS.set(created);
+        } else {
+            resources.writer = created;
+        }
+        return writer;
     }
 
     private static XMLWriter getXmlWriter(final OutputStream out, final XmlOutputFormat fmt)
@@ -111,28 +187,55 @@ final class FormatUtil {
      *             if output XML stream could not be written
      */
     static boolean formatInPlace(final File file, final XmlOutputFormat fmt) throws DocumentException, IOException {
-        if (file.length() == 0) {
+        final long length = file.length();
+        if (length == 0) {
             return false;
         }
-
-        final File tmpFile = createTempFile(TMP_FILE_PREFIX, ".xml");
-        tmpFile.deleteOnExit();
-
-        try (InputStream in = Files.newInputStream(file.toPath());
-                OutputStream out = Files.newOutputStream(tmpFile.toPath())) {
-            format(in, out, fmt);
+        final FormatEngine engine = engineFor(length, fmt);
+        try (MemoryGuard.Permit permit = MemoryGuard.HEAP.acquire(footprint(length, engine, fmt))) {
+            if (length > fmt.getInMemoryThreshold()) {
+                return formatInPlaceStreaming(file, fmt, engine);
+            }
+            return formatInMemory(file, fmt, engine);
         }
+    }
+
+    /**
+     * Forgets the parser, writer, buffer and phase times kept by the calling thread, so a thread outliving the
+     * execution (such as the request thread of the Maven daemon) does not keep them, nor the class loader of the
+     * plugin, alive.
+     */
+    static void releaseThreadResources() {
+        BUFFERS.remove();
+        WRITERS.remove();
+        ParserContext.forget();
+        FormatStatistics.releaseThread();
+    }
 
-        final long hashFile = hash(file);
-        final long hashTmp = hash(tmpFile);
-        if (hashFile == hashTmp) {
+    private static boolean formatInMemory(final File file, final XmlOutputFormat fmt, final FormatEngine engine)
+            throws DocumentException, IOException {
+        final byte[] original = read(file, fmt);
+        if (provenFormatted(ByteBuffer.wrap(original), fmt)) {
             return false;
         }
+        final byte[] normalized = provenLineEndingsOnly(original, fmt);
+        if (normalized != null) {
+            write(file, fmt, false, out -> out.write(normalized));
+            return true;
+        }
+        final CpuPermits cpuPermits = fmt.getCpuPermits();
+        try (CpuPermits.Permit permit = cpuPermits == null ? null : cpuPermits.acquire()) {
+            final OutputBuffer formatted = formatToBuffer(original, fmt, engine, permit);
+            final long compareStart = System.nanoTime();
+            final boolean same = formatted.sameAs(original);
+            fmt.getStatistics().time(Phase.COMPARE, System.nanoTime() - compareStart);
+            if (same) {
+                return false;
+            }
 
-        final Path source = tmpFile.toPath();
-        final Path target = file.toPath();
-        copy(source, target, REPLACE_EXISTING);
-        return true;
+            write(file, fmt, false, formatted::writeTo);
+            return true;
+        }
     }
 
     /**
@@ -151,21 +254,254 @@ final class FormatUtil {
      *             if output XML stream could not be written
      */
     static boolean needsFormatting(final File file, final XmlOutputFormat fmt) throws DocumentException, IOException {
-        if (file.length() == 0) {
-            return false;
+        return findDifference(file, fmt) != null;
+    }
+
+    /**
+     * Finds the first location where the formatted content would differ from the input file, without overwriting it.
+     * Formatting stops as soon as a difference is found. As the file is parsed while it is compared, a document that is
+     * both malformed and incorrectly formatted may report the difference rather than the parsing error.
+     *
+     * @param file
+     *            to read
+     * @param fmt
+     *            format configuration to apply
+     *
+     * @return the first difference, or null if the file would not be modified by the formatter
+     *
+     * @throws DocumentException
+     *             if input XML could not be parsed
+     * @throws IOException
+     *             if input XML file could not be read
+     */
+    static Difference findDifference(final File file, final XmlOutputFormat fmt)
+            throws DocumentException, IOException {
+        final long length = file.length();
+        if (length == 0) {
+            return null;
+        }
+        final FormatEngine engine = engineFor(length, fmt);
+        try (MemoryGuard.Permit permit = MemoryGuard.HEAP.acquire(footprint(length, engine, fmt))) {
+            return findDifference(file, length, fmt, engine);
+        }
+    }
+
+    private static Difference findDifference(final File file, final long length, final XmlOutputFormat fmt,
+            final FormatEngine engine) throws DocumentException, IOException {
+        if (length > fmt.getInMemoryThreshold()) {
+            if (provenFormatted(IOUtil.map(file.toPath()), fmt)) {
+                return null;
+            }
+            try (InputStream in = IOUtil.open(file.toPath()); InputStream expected = IOUtil.open(file.toPath())) {
+                return compare(in, expected, fmt, engine);
+            }
+        }
+
+        final byte[] original = read(file, fmt);
+        if (provenFormatted(ByteBuffer.wrap(original), fmt)) {
+            return null;
+        }
+        final byte[] normalized = provenLineEndingsOnly(original, fmt);
+        if (normalized != null) {
+            return compare(normalized, original, fmt);
         }
+        return compare(new ByteArrayInputStream(original), new ByteArrayInputStream(original), fmt, engine);
+    }
+
+    /**
+     * The engine formatting a file. Documents whose tree could not fit in the heap are streamed, which produces the
+     * same output in constant memory.
+     */
+    static FormatEngine engineFor(final long length, final XmlOutputFormat fmt) {
+        if (fmt.getEngine() == FormatEngine.DOM
+                && !MemoryGuard.HEAP.fits(saturatedMultiply(length, MemoryGuard.DOM_BYTES_PER_BYTE))) {
+            return FormatEngine.STREAMING;
+        }
+        return fmt.getEngine();
+    }
+
+    /**
+     * The heap estimated to be needed to format a file.
+     */
+    private static long footprint(final long length, final FormatEngine engine, final XmlOutputFormat fmt) {
+        long bytes = 0;
+        if (engine == FormatEngine.DOM) {
+            bytes += saturatedMultiply(length, MemoryGuard.DOM_BYTES_PER_BYTE);
+        }
+        if (length <= fmt.getInMemoryThreshold()) {
+            bytes += length * MemoryGuard.IN_MEMORY_BYTES_PER_BYTE;
+        }
+        return bytes;
+    }
+
+    private static long saturatedMultiply(final long value, final int factor) {
+        return value > Long.MAX_VALUE / factor ? Long.MAX_VALUE : value * factor;
+    }
+
+    /**
+     * Tries to prove a file formatted without running the formatter, recording the outcome in the statistics.
+     */
+    private static boolean provenFormatted(final ByteBuffer content, final XmlOutputFormat fmt) {
+        final long start = System.nanoTime();
+        final boolean proven = content != null && FormatVerifier.isFormatted(content, fmt);
+        final FormatStatistics statistics = fmt.getStatistics();
+        statistics.time(Phase.VERIFY, System.nanoTime() - start);
+        statistics.record(proven);
+        return proven;
+    }
+
+    /**
+     * Tries to prove that only the line endings of a file differ from its formatted content, by rewriting them and
+     * proving the result formatted. This saves parsing files that were only checked out with other line endings.
+     *
+     * @return the formatted content, or null if it could not be proven
+     */
+    private static byte[] provenLineEndingsOnly(final byte[] original, final XmlOutputFormat fmt) {
+        if (!FormatVerifier.supports(fmt)) {
+            return null;
+        }
+        final long start = System.nanoTime();
+        final byte[] normalized = LineEndings.normalize(original, fmt.getLineSeparator());
+        final boolean proven = normalized != null && FormatVerifier.isFormatted(ByteBuffer.wrap(normalized), fmt);
+        final FormatStatistics statistics = fmt.getStatistics();
+        statistics.time(Phase.VERIFY, System.nanoTime() - start);
+        if (!proven) {
+            return null;
+        }
+        statistics.recordLineEndingsOnly();
+        return normalized;
+    }
+
+    private static byte[] read(final File file, final XmlOutputFormat fmt) throws IOException {
+        final long start = System.nanoTime();
+        try {
+            return Files.readAllBytes(file.toPath());
+        } finally {
+            fmt.getStatistics().time(Phase.READ, System.nanoTime() - start);
+        }
+    }
+
+    private static void write(final File file, final XmlOutputFormat fmt, final boolean readsFile,
+            final InPlaceWriter.Content content) throws DocumentException, IOException {
+        final FormatStatistics statistics = fmt.getStatistics();
+        final long start = System.nanoTime();
+        final long nested = statistics.getFileNanos();
+        try {
+            InPlaceWriter.write(file, fmt, readsFile, content);
+        } finally {
+            // Formatting again while streaming to the file is counted by its own phases
+            statistics.time(Phase.WRITE, System.nanoTime() - start - (statistics.getFileNanos() - nested));
+        }
+    }
+
+    /**
+     * A writer bound to a thread's output buffer, with the configuration it was created for.
+     */
+    private static final class ReusableWriter {
+        private final String encoding;
+        private final XmlOutputFormat fmt;
+        private final boolean keepBlankLines;
+        private final OutputBuffer out;
+        private final XMLWriter writer;
+
+        ReusableWriter(final OutputBuffer out, final XmlOutputFormat fmt, final XMLWriter writer) {
+            this.out = out;
+            this.fmt = fmt;
+            this.writer = writer;
+            this.encoding = fmt.getEncoding();
+            this.keepBlankLines = fmt.isKeepBlankLines();
+        }
+
+        /**
+         * The writer follows later changes of the configuration, except for those deciding how it was created.
+         */
+        boolean isFor(final OutputBuffer buffer, final XmlOutputFormat format) {
+            return out == buffer && fmt == format && encoding.equals(format.getEncoding())
+                    && keepBlankLines == format.isKeepBlankLines();
+        }
+    }
+
+    /**
+     * The parser, buffer and writer reused from one document to the next by the threads holding {@link CpuPermits}.
+     */
+    static final class Resources {
+        private final OutputBuffer buffer = new OutputBuffer();
+        private final ParserContext parser = new ParserContext();
+        private ReusableWriter writer;
+    }
+
+    private static Difference compare(final InputStream in, final InputStream expected, final XmlOutputFormat fmt,
+            final FormatEngine engine) throws DocumentException, IOException {
+        final ComparingOutputStream out = new ComparingOutputStream(expected, fmt.getEncoding());
+        try {
+            format(in, out, fmt, engine);
+        } catch (final DocumentException | IOException ex) {
+            // A difference aborts formatting with an exception, which may have been wrapped by the parser
+            if (out.getDifference() == null) {
+                throw ex;
+            }
+            return out.getDifference();
+        }
+        return out.finish();
+    }
+
+    /**
+     * Compares already formatted content with the expected content.
+     */
+    private static Difference compare(final byte[] formatted, final byte[] expected, final XmlOutputFormat fmt)
+            throws IOException {
+        final ComparingOutputStream out = new ComparingOutputStream(new ByteArrayInputStream(expected),
+                fmt.getEncoding());
+        try {
+            out.write(formatted);
+        } catch (final IOException ex) {
+            if (out.getDifference() == null) {
+                throw ex;
+            }
+            return out.getDifference();
+        }
+        return out.finish();
+    }
 
-        final File tmpFile = createTempFile(TMP_FILE_PREFIX, ".xml");
-        tmpFile.deleteOnExit();
+    /**
+     * Formats the given bytes into a reusable buffer: the calling thread's, valid until the next call on the same
+     * thread, or the one of the given permit, valid until the permit is closed. The processor of the permit is
+     * released once the document is formatted, while its buffer is still used.
+     */
+    private static OutputBuffer formatToBuffer(final byte[] original, final XmlOutputFormat fmt,
+            final FormatEngine engine, final CpuPermits.Permit permit) throws DocumentException, IOException {
+        if (permit == null) {
+            final OutputBuffer buffer = BUFFERS.get();
+            buffer.reset();
+            formatUnlimited(new ByteArrayInputStream(original), buffer, fmt, engine, null);
+            return buffer;
+        }
+        final Resources resources = permit.getResources();
+        resources.buffer.reset();
+        try {
+            formatUnlimited(new ByteArrayInputStream(original), resources.buffer, fmt, engine, resources);
+        } finally {
+            permit.releaseProcessor();
+        }
+        return resources.buffer;
+    }
 
-        try (InputStream in = Files.newInputStream(file.toPath());
-                OutputStream out = Files.newOutputStream(tmpFile.toPath())) {
-            format(in, out, fmt);
+    /**
+     * Formats a large file without holding it in memory. The file is first compared with its formatted content, which
+     * stops at the first difference, and only rewritten if needed.
+     */
+    private static boolean formatInPlaceStreaming(final File file, final XmlOutputFormat fmt,
+            final FormatEngine engine) throws DocumentException, IOException {
+        if (findDifference(file, file.length(), fmt, engine) == null) {
+            return false;
         }
 
-        final long hashFile = hash(file);
-        final long hashTmp = hash(tmpFile);
-        return hashFile != hashTmp;
+        write(file, fmt, true, out -> {
+            try (InputStream in = IOUtil.open(file.toPath())) {
+                format(in, out, fmt, engine);
+            }
+        });
+        return true;
     }
 
 }
@@ -0,0 +1,715 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Proves that a document is already formatted by lexing its raw bytes, without parsing it into a DOM and writing it
+ * back. The lexer accepts exactly the layout {@link org.dom4j.io.XMLWriter} and {@link BlankLinesWriter} produce:
+ * declaration, line endings, indentation, attribute quotes, escaping and empty element style. It gives up as soon as it
+ * meets anything it cannot prove would be written back unchanged, such as mixed content, a document type declaration
+ * or a processing instruction, so a negative answer only means the full formatter has to decide.
+ * <p>
+ * Only UTF-8 output with newlines and trimmed, unpadded text is supported. Documents are also checked to be
+ * well-formed within the accepted subset, so a malformed document is always left to the parser to report.
+ */
+final class FormatVerifier {
+
+    private static final byte[] CDATA_END = bytes("]]>");
+    private static final byte[] CDATA_START = bytes("<![CDATA[");
+    private static final byte[] CLOSE_START = bytes("</");
+    private static final byte[] COMMENT_START = bytes("<!--");
+    private static final byte[] EMPTY_END = bytes("/>");
+    private static final byte[] ENTITY_AMP = bytes("&amp;");
+    private static final byte[] ENTITY_APOS = bytes("&apos;");
+    private static final byte[] ENTITY_GT = bytes("&gt;");
+    private static final byte[] ENTITY_LT = bytes("&lt;");
+    private static final byte[] ENTITY_QUOT = bytes("&quot;");
+    private static final int INITIAL_CAPACITY = 32;
+    private static final byte[] SPACE = bytes("space");
+    private static final byte[] XML = bytes("xml");
+    private static final byte[] XMLNS = bytes("xmlns");
+
+    private final byte attributeQuote;
+    private final byte[] attributeQuoteEntity;
+    private final byte[] declaration;
+    private final boolean expandEmptyElements;
+    private final byte[] indent;
+    private final boolean keepBlankLines;
+    private final byte[] lineSeparator;
+
+    private final ByteBuffer in;
+    private final int end;
+    private int pos;
+
+    // Open elements, innermost last, with the number of namespace bindings in scope before each of them
+    private int depth;
+    private int[] nameStart = new int[INITIAL_CAPACITY];
+    private int[] nameLength = new int[INITIAL_CAPACITY];
+    private int[] bindingMark = new int[INITIAL_CAPACITY];
+
+    // Namespaces declared by the open elements, as ranges of the input
+    private int bindings;
+    private int[] prefixStart = new int[INITIAL_CAPACITY];
+    private int[] prefixLength = new int[INITIAL_CAPACITY];
+    private int[] uriStart = new int[INITIAL_CAPACITY];
+    private int[] uriLength = new int[INITIAL_CAPACITY];
+
+    // Attributes of the start tag being read
+    private int attributes;
+    private int[] attributeStart = new int[INITIAL_CAPACITY];
+    private int[] attributeLength = new int[INITIAL_CAPACITY];
+    private int[] attributeColon = new int[INITIAL_CAPACITY];
+    private int[] valueStart = new int[INITIAL_CAPACITY];
+    private int[] valueLength = new int[INITIAL_CAPACITY];
+
+    // Describe the last start tag read
+    private boolean declaresNamespaces;
+    private boolean opened;
+
+    private FormatVerifier(final ByteBuffer in, final XmlOutputFormat fmt) {
+        this.in = in;
+        this.end = in.limit();
+        this.attributeQuote = (byte) fmt.getAttributeQuoteCharacter();
+        this.attributeQuoteEntity = attributeQuote == '"' ? ENTITY_QUOT : ENTITY_APOS;
+        this.expandEmptyElements = fmt.isExpandEmptyElements();
+        this.indent = fmt.getIndent() == null ? new byte[0] : bytes(fmt.getIndent());
+        this.keepBlankLines = fmt.isKeepBlankLines();
+        this.lineSeparator = bytes(fmt.getLineSeparator());
+        if (fmt.isSuppressDeclaration()) {
+            this.declaration = new byte[0];
+        } else {
+            final String encoding = "UTF8".equals(fmt.getEncoding()) ? "UTF-8" : fmt.getEncoding();
+            this.declaration = bytes("<?xml version=\"1.0\"" + (fmt.isOmitEncoding() ? "" : " encoding=\"" + encoding
+                    + "\"") + "?>" + (fmt.isNewLineAfterDeclaration() ? fmt.getLineSeparator() : ""));
+        }
+    }
+
+    /**
+     * Indicates whether documents formatted with the given configuration can be verified at all.
+     *
+     * @param fmt
+     *            the format configuration
+     *
+     * @return true if {@link #isFormatted(ByteBuffer, XmlOutputFormat)} may prove documents formatted
+     */
+    static boolean supports(final XmlOutputFormat fmt) {
+        final String encoding = fmt.getEncoding();
+        final String separator = fmt.getLineSeparator();
+        final String indent = fmt.getIndent() == null ? "" : fmt.getIndent();
+        final char quote = fmt.getAttributeQuoteCharacter();
+        return fmt.isNewlines() && fmt.isTrimText() && !fmt.isPadText() && !fmt.isXHTML()
+                && fmt.getNewLineAfterNTags() == 0 && ("UTF-8".equalsIgnoreCase(encoding) || "UTF8".equals(encoding))
+                && ("\n".equals(separator) || "\r\n".equals(separator) || "\r".equals(separator))
+                && indent.replace(" ", "").replace("\t", "").isEmpty() && (quote == '"' || quote == '\'');
+    }
+
+    /**
+     * Indicates whether a document is proven to be formatted. The buffer's position is left unchanged.
+     *
+     * @param content
+     *            the raw content of the document, from index 0 to its limit
+     * @param fmt
+     *            the format configuration
+     *
+     * @return true if formatting the document would reproduce it byte for byte, false if this could not be proven
+     */
+    static boolean isFormatted(final ByteBuffer content, final XmlOutputFormat fmt) {
+        return supports(fmt) && new FormatVerifier(content, fmt).document();
+    }
+
+    private boolean document() {
+        if (!skip(declaration)) {
+            return false;
+        }
+        // Every node of the document is preceded by a line separator, and the document ends with one
+        boolean rootSeen = false;
+        while (skip(lineSeparator)) {
+            if (pos == end) {
+                return rootSeen;
+            }
+            if (lookingAt(COMMENT_START)) {
+                if (!comment()) {
+                    return false;
+                }
+            } else if (rootSeen || !element()) {
+                return false;
+            } else {
+                rootSeen = true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads an element and all its descendants, iteratively so deep documents cannot overflow the stack.
+     */
+    private boolean element() {
+        if (!startTag()) {
+            return false;
+        }
+        // True when within element content, after a child
+        boolean afterChild = !opened;
+        while (depth > 0) {
+            if (afterChild) {
+                final int level = gap();
+                if (lookingAt(CLOSE_START)) {
+                    if (!atLevel(level, depth - 1) || !endTag()) {
+                        return false;
+                    }
+                } else if (!atLevel(level, depth) || !child()) {
+                    return false;
+                } else {
+                    afterChild = !opened;
+                }
+            } else if (lookingAt(CLOSE_START)) {
+                // The writer only writes a start and an end tag without content when expanding empty elements, or
+                // when namespace declarations count as content
+                if ((!expandEmptyElements && !declaresNamespaces) || !endTag()) {
+                    return false;
+                }
+                afterChild = true;
+            } else if (lookingAt(CDATA_START)) {
+                if (!cdata() || !endTag()) {
+                    return false;
+                }
+                afterChild = true;
+            } else if (atLineBreak()) {
+                // Element content, holding at least one child
+                final int level = gap();
+                if (lookingAt(CLOSE_START) || !atLevel(level, depth) || !child()) {
+                    return false;
+                }
+                afterChild = !opened;
+            } else {
+                if (!text() || !endTag()) {
+                    return false;
+                }
+                afterChild = true;
+            }
+        }
+        return true;
+    }
+
+    private boolean child() {
+        if (lookingAt(COMMENT_START)) {
+            opened = false;
+            return comment();
+        }
+        return startTag();
+    }
+
+    /**
+     * Reads the whitespace the writer puts before a child or an end tag within element content: an optional blank
+     * line when keeping blank lines, a line separator, then indentation.
+     *
+     * @return the indentation level, or -1 if the whitespace is not the expected one
+     */
+    private int gap() {
+        if (keepBlankLines && pos < end && in.get(pos) == '\n' && lookingAt(pos + 1, lineSeparator)) {
+            pos++;
+        }
+        if (!skip(lineSeparator)) {
+            return -1;
+        }
+        int level = 0;
+        if (indent.length > 0) {
+            while (skip(indent)) {
+                level++;
+            }
+        }
+        return level;
+    }
+
+    private boolean atLevel(final int level, final int expected) {
+        // Without indentation, every level looks the same
+        return level == expected || (level == 0 && indent.length == 0);
+    }
+
+    private boolean atLineBreak() {
+        return pos < end && (in.get(pos) == lineSeparator[0] || (keepBlankLines && in.get(pos) == '\n'));
+    }
+
+    private boolean startTag() {
+        if (!skip((byte) '<')) {
+            return false;
+        }
+        final int start = pos;
+        final int colon = name();
+        if (colon == -1) {
+            return false;
+        }
+        final int length = pos - start;
+
+        attributes = 0;
+        boolean regularSeen = false;
+        while (skip((byte) ' ')) {
+            final int attribute = pos;
+            final int attributeColonPos = name();
+            if (attributeColonPos == -1 || !skip((byte) '=')) {
+                return false;
+            }
+            final int attributeNameLength = pos - 1 - attribute;
+            final boolean declaration = equals(attribute, attributeNameLength, XMLNS)
+                    || (attributeColonPos > 0 && equals(attribute, attributeColonPos - attribute, XMLNS));
+            final int value = pos + 1;
+            // The writer puts namespace declarations before attributes, always between double quotes
+            if (declaration ? regularSeen || !declarationValue() : !attributeValue()) {
+                return false;
+            }
+            regularSeen |= !declaration;
+            addAttribute(attribute, attributeNameLength, attributeColonPos, value, pos - 1 - value);
+        }
+
+        final boolean empty = skip(EMPTY_END);
+        if (!empty && !skip((byte) '>')) {
+            return false;
+        }
+
+        push(start, length);
+        if (!bindNamespaces(start, colon) || !checkNames(start, colon)) {
+            return false;
+        }
+        declaresNamespaces = bindings > bindingMark[depth - 1];
+        opened = !empty;
+        if (empty) {
+            // Namespace declarations are content for the writer, which then never writes an empty element tag
+            if (expandEmptyElements || declaresNamespaces) {
+                return false;
+            }
+            pop();
+        }
+        return true;
+    }
+
+    private void addAttribute(final int start, final int length, final int colon, final int value,
+            final int valueLen) {
+        if (attributes == attributeStart.length) {
+            final int capacity = attributes * 2;
+            attributeStart = Arrays.copyOf(attributeStart, capacity);
+            attributeLength = Arrays.copyOf(attributeLength, capacity);
+            attributeColon = Arrays.copyOf(attributeColon, capacity);
+            valueStart = Arrays.copyOf(valueStart, capacity);
+            valueLength = Arrays.copyOf(valueLength, capacity);
+        }
+        attributeStart[attributes] = start;
+        attributeLength[attributes] = length;
+        attributeColon[attributes] = colon;
+        valueStart[attributes] = value;
+        valueLength[attributes] = valueLen;
+        attributes++;
+    }
+
+    /**
+     * Binds the namespaces declared by the start tag just read, checking the writer would write the declarations
+     * back in the same order.
+     */
+    private boolean bindNamespaces(final int elementStart, final int elementColon) {
+        final int elementPrefixLength = elementColon > 0 ? elementColon - elementStart : 0;
+        boolean first = true;
+        for (int i = 0; i < attributes; i++) {
+            final int start = attributeStart[i];
+            final int colon = attributeColon[i];
+            final boolean defaultDeclaration = equals(start, attributeLength[i], XMLNS);
+            if (!defaultDeclaration && !(colon > 0 && equals(start, colon - start, XMLNS))) {
+                continue;
+            }
+            final int prefix = defaultDeclaration ? start : colon + 1;
+            final int prefixLen = defaultDeclaration ? 0 : attributeLength[i] - (colon + 1 - start);
+            if (equals(prefix, prefixLen, XML) || equals(prefix, prefixLen, XMLNS) || valueLength[i] == 0) {
+                return false;
+            }
+            // The declaration of the element's own namespace is written first
+            if (!first && sameRange(prefix, prefixLen, elementStart, elementPrefixLength)) {
+                return false;
+            }
+            first = false;
+            // The writer drops declarations of namespaces it has already written, anywhere in scope
+            for (int b = 0; b < bindings; b++) {
+                final boolean samePrefix = sameRange(prefixStart[b], prefixLength[b], prefix, prefixLen);
+                if (samePrefix && (b >= bindingMark[depth - 1]
+                        || sameRange(uriStart[b], uriLength[b], valueStart[i], valueLength[i]))) {
+                    return false;
+                }
+            }
+            bind(prefix, prefixLen, valueStart[i], valueLength[i]);
+        }
+        return true;
+    }
+
+    private void bind(final int prefix, final int prefixLen, final int uri, final int uriLen) {
+        if (bindings == prefixStart.length) {
+            final int capacity = bindings * 2;
+            prefixStart = Arrays.copyOf(prefixStart, capacity);
+            prefixLength = Arrays.copyOf(prefixLength, capacity);
+            uriStart = Arrays.copyOf(uriStart, capacity);
+            uriLength = Arrays.copyOf(uriLength, capacity);
+        }
+        prefixStart[bindings] = prefix;
+        prefixLength[bindings] = prefixLen;
+        uriStart[bindings] = uri;
+        uriLength[bindings] = uriLen;
+        bindings++;
+    }
+
+    /**
+     * Checks the prefixes of the element and of its attributes are bound, and that no attribute is repeated.
+     */
+    private boolean checkNames(final int elementStart, final int elementColon) {
+        if (elementColon > 0 && !isBound(elementStart, elementColon - elementStart)) {
+            return false;
+        }
+        for (int i = 0; i < attributes; i++) {
+            final int start = attributeStart[i];
+            final int colon = attributeColon[i];
+            if (equals(start, attributeLength[i], XMLNS) || (colon > 0 && equals(start, colon - start, XMLNS))) {
+                continue;
+            }
+            if (lookingAt(start, XMLNS)) {
+                // Other attributes starting with xmlns are dropped by the parser
+                return false;
+            }
+            if (colon > 0) {
+                final int prefixLen = colon - start;
+                if (equals(start, prefixLen, XML)) {
+                    // xml:space="preserve" keeps whitespace untrimmed
+                    if (equals(colon + 1, attributeLength[i] - prefixLen - 1, SPACE)) {
+                        return false;
+                    }
+                } else if (!isBound(start, prefixLen)) {
+                    return false;
+                }
+            }
+            for (int j = 0; j < i; j++) {
+                // Conservatively treats equal local names of two prefixed attributes as duplicates
+                if (sameRange(start, attributeLength[i], attributeStart[j], attributeLength[j])
+                        || (colon > 0 && attributeColon[j] > 0 && sameRange(colon,
+                                attributeLength[i] - (colon - start), attributeColon[j],
+                                attributeLength[j] - (attributeColon[j] - attributeStart[j])))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean isBound(final int prefix, final int length) {
+        for (int b = bindings - 1; b >= 0; b--) {
+            if (sameRange(prefixStart[b], prefixLength[b], prefix, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean endTag() {
+        final int top = depth - 1;
+        if (!skip(CLOSE_START) || !lookingAt(pos, nameStart[top], nameLength[top])) {
+            return false;
+        }
+        pos += nameLength[top];
+        if (!skip((byte) '>')) {
+            return false;
+        }
+        pop();
+        return true;
+    }
+
+    private void push(final int start, final int length) {
+        if (depth == nameStart.length) {
+            final int capacity = depth * 2;
+            nameStart = Arrays.copyOf(nameStart, capacity);
+            nameLength = Arrays.copyOf(nameLength, capacity);
+            bindingMark = Arrays.copyOf(bindingMark, capacity);
+        }
+        nameStart[depth] = start;
+        nameLength[depth] = length;
+        bindingMark[depth] = bindings;
+        depth++;
+    }
+
+    private void pop() {
+        depth--;
+        bindings = bindingMark[depth];
+    }
+
+    /**
+     * Reads a name made of ASCII characters, with at most one colon separating two names.
+     *
+     * @return the position of the colon, 0 if there is none, or -1 if there is no valid name
+     */
+    private int name() {
+        if (pos >= end || !isNameStart(in.get(pos))) {
+            return -1;
+        }
+        pos++;
+        int colon = 0;
+        while (pos < end) {
+            final byte b = in.get(pos);
+            if (b == ':') {
+                if (colon > 0 || pos + 1 >= end || !isNameStart(in.get(pos + 1))) {
+                    return -1;
+                }
+                colon = pos;
+            } else if (!isNameStart(b) && !(b >= '0' && b <= '9') && b != '-' && b != '.') {
+                break;
+            }
+            pos++;
+        }
+        return colon;
+    }
+
+    private static boolean isNameStart(final byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || b == '_';
+    }
+
+    /**
+     * Reads a quoted attribute value, which must hold exactly the references the writer produces: the parser replaces
+     * every other reference with its character, and whitespace characters with spaces.
+     */
+    private boolean attributeValue() {
+        if (!skip(attributeQuote)) {
+            return false;
+        }
+        while (pos < end) {
+            final byte b = in.get(pos);
+            if (b == attributeQuote) {
+                pos++;
+                return true;
+            }
+            if (b == '&') {
+                if (!skip(ENTITY_LT) && !skip(ENTITY_GT) && !skip(ENTITY_AMP) && !skip(attributeQuoteEntity)) {
+                    return false;
+                }
+            } else if (!character(b) || b == '<' || b == '>') {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private boolean declarationValue() {
+        if (!skip((byte) '"')) {
+            return false;
+        }
+        while (pos < end) {
+            final byte b = in.get(pos);
+            if (b == '"') {
+                pos++;
+                return true;
+            }
+            // Declarations are written back without escaping, so they must not hold references
+            if (b == '&' || b == '<' || !character(b)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads text content, which the writer trims, escapes and joins with single spaces.
+     */
+    private boolean text() {
+        boolean space = true;
+        while (pos < end) {
+            final byte b = in.get(pos);
+            if (b == '<') {
+                return !space;
+            }
+            if (b == ' ') {
+                if (space) {
+                    return false;
+                }
+                space = true;
+                pos++;
+                continue;
+            }
+            space = false;
+            if (b == '&') {
+                if (!skip(ENTITY_LT) && !skip(ENTITY_GT) && !skip(ENTITY_AMP)) {
+                    return false;
+                }
+            } else if (b == '>' || !character(b)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private boolean comment() {
+        pos += COMMENT_START.length;
+        final int start = pos;
+        while (pos < end) {
+            final byte b = in.get(pos);
+            if (b == '-' && pos + 1 < end && in.get(pos + 1) == '-') {
+                // Only allowed as the end of the comment, which must not end with a dash either
+                final boolean trailingDash = pos > start && in.get(pos - 1) == '-';
+                pos += 2;
+                return !trailingDash && skip((byte) '>');
+            }
+            if (!characterOrNewLine(b)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private boolean cdata() {
+        pos += CDATA_START.length;
+        while (pos < end) {
+            if (skip(CDATA_END)) {
+                return true;
+            }
+            if (!characterOrNewLine(in.get(pos))) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads a character the writer writes back as it is when it is part of text: anything but control characters.
+     */
+    private boolean character(final byte b) {
+        if (b < 0) {
+            return utf8();
+        }
+        if (b < 0x20) {
+            return false;
+        }
+        pos++;
+        return true;
+    }
+
+    /**
+     * Reads a character of a comment or CDATA section, which may also be a tab or a line feed. Carriage returns are
+     * rejected as the parser normalizes them to line feeds.
+     */
+    private boolean characterOrNewLine(final byte b) {
+        if (b == '\n' || b == '\t') {
+            pos++;
+            return true;
+        }
+        return character(b);
+    }
+
+    /**
+     * Reads a multi-byte UTF-8 sequence encoding a character allowed in XML.
+     */
+    private boolean utf8() {
+        final int lead = in.get(pos) & 0xFF;
+        final int count;
+        int min = 0x80;
+        int max = 0xBF;
+        if (lead >= 0xC2 && lead <= 0xDF) {
+            count = 1;
+        } else if (lead >= 0xE0 && lead <= 0xEF) {
+            count = 2;
+            if (lead == 0xE0) {
+                min = 0xA0;
+            } else if (lead == 0xED) {
+                // Surrogates
+                max = 0x9F;
+            }
+        } else if (lead >= 0xF0 && lead <= 0xF4) {
+            count = 3;
+            if (lead == 0xF0) {
+                min = 0x90;
+            } else if (lead == 0xF4) {
+                max = 0x8F;
+            }
+        } else {
+            return false;
+        }
+        if (pos + count >= end) {
+            return false;
+        }
+        for (int i = 1; i <= count; i++) {
+            final int b = in.get(pos + i) & 0xFF;
+            if (b < (i == 1 ? min : 0x80) || b > (i == 1 ? max : 0xBF)) {
+                return false;
+            }
+        }
+        // U+FFFE and U+FFFF are not characters
+        if (lead == 0xEF && (in.get(pos + 1) & 0xFF) == 0xBF && (in.get(pos + 2) & 0xFF) >= 0xBE) {
+            return false;
+        }
+        pos += count + 1;
+        return true;
+    }
+
+    private boolean skip(final byte b) {
+        if (pos < end && in.get(pos) == b) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean skip(final byte[] bytes) {
+        if (lookingAt(pos, bytes)) {
+            pos += bytes.length;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean lookingAt(final byte[] bytes) {
+        return lookingAt(pos, bytes);
+    }
+
+    private boolean lookingAt(final int at, final byte[] bytes) {
+        if (at + bytes.length > end) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (in.get(at + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean lookingAt(final int at, final int start, final int length) {
+        return at + length <= end && sameRange(at, length, start, length);
+    }
+
+    private boolean equals(final int start, final int length, final byte[] bytes) {
+        return length == bytes.length && lookingAt(start, bytes);
+    }
+
+    private boolean sameRange(final int start1, final int length1, final int start2, final int length2) {
+        if (length1 != length2) {
+            return false;
+        }
+        for (int i = 0; i < length1; i++) {
+            if (in.get(start1 + i) != in.get(start2 + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] bytes(final String text) {
+        return text.getBytes(US_ASCII);
+    }
+}
@@ -17,58 +17,167 @@
  */
 package au.com.acegi.xmlformat;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
-import java.util.zip.CRC32;
-import java.util.zip.CheckedInputStream;
-import java.util.zip.Checksum;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
 
 /**
  * Utility methods for dealing with I/O resources.
  */
 final class IOUtil {
 
+    /**
+     * Files from this size (in bytes) are memory mapped rather than read into heap buffers.
+     */
+    static final long MAP_THRESHOLD = 1L << 20;
+
+    /**
+     * Windows refuses to replace or truncate a file while a mapping of it is alive, and mappings are only released
+     * once garbage collected, so files are never mapped there.
+     */
+    private static final boolean MAP_SUPPORTED = !System.getProperty("os.name", "").toLowerCase(Locale.ROOT)
+            .startsWith("windows");
+
     private IOUtil() {
     }
 
     /**
-     * Returns a CRC32 of the provided input stream.
+     * Hashes the provided input stream.
      *
      * @param in
-     *            to CRC32
+     *            to hash
+     * @param function
+     *            the hash function
      *
-     * @return the CRC32 value
+     * @return the hash
      *
      * @throws IOException
      *             if unable to read the input stream
      */
-    @SuppressWarnings("PMD.EmptyWhileStmt")
-    static long hash(final InputStream in) throws IOException {
-        final Checksum cksum = new CRC32();
-        final CheckedInputStream is = new CheckedInputStream(in, cksum);
-        final byte[] buff = new byte[4_096];
-        while (is.read(buff) >= 0) {
-            // CheckInputStream will update its internal checksum
+    static long hash(final InputStream in, final ContentHash function) throws IOException {
+        final ContentHash.Hasher hasher = function.newHasher();
+        final byte[] buff = new byte[8_192];
+        int read;
+        while ((read = in.read(buff)) >= 0) {
+            hasher.update(ByteBuffer.wrap(buff, 0, read));
         }
-        return is.getChecksum().getValue();
+        return hasher.getValue();
     }
 
     /**
-     * Returns a CRC32 of the given file.
+     * Hashes the given file. Large files are memory mapped and hashed without being copied.
      *
      * @param file
-     *            to CRC32
+     *            to hash
+     * @param function
+     *            the hash function
      *
-     * @return the CRC32 value
+     * @return the hash
      *
      * @throws IOException
      *             if unable to read the file
      */
-    static long hash(final File file) throws IOException {
-        try (InputStream fis = Files.newInputStream(file.toPath())) {
-            return hash(fis);
+    static long hash(final File file, final ContentHash function) throws IOException {
+        final ContentHash.Hasher hasher = function.newHasher();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (MAP_SUPPORTED && size >= MAP_THRESHOLD) {
+                for (long position = 0; position < size; position += MappedInputStream.REGION_SIZE) {
+                    final long length = Math.min(MappedInputStream.REGION_SIZE, size - position);
+                    hasher.update(channel.map(MapMode.READ_ONLY, position, length));
+                }
+            } else {
+                final ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size + 1, MAP_THRESHOLD));
+                while (channel.read(buffer) >= 0) {
+                    buffer.flip();
+                    hasher.update(buffer);
+                    buffer.clear();
+                }
+            }
+        }
+        return hasher.getValue();
+    }
+
+    /**
+     * Compares the remaining bytes of two buffers. On Java 9 and later the comparison is vectorized by the JVM, so
+     * comparing is cheaper than hashing either buffer, and unlike hashes it cannot be fooled by a collision.
+     *
+     * @param first
+     *            the first content
+     * @param second
+     *            the second content
+     *
+     * @return true if both contents are identical
+     */
+    static boolean sameContent(final ByteBuffer first, final ByteBuffer second) {
+        return first.equals(second);
+    }
+
+    /**
+     * Opens a file for sequential reading, memory mapping it if it is large enough.
+     *
+     * @param file
+     *            the file to read
+     *
+     * @return the stream, to be closed by the caller
+     *
+     * @throws IOException
+     *             if unable to open the file
+     */
+    static InputStream open(final Path file) throws IOException {
+        if (MAP_SUPPORTED && Files.size(file) >= MAP_THRESHOLD) {
+            return new MappedInputStream(file);
+        }
+        return new BufferedInputStream(Files.newInputStream(file));
+    }
+
+    /**
+     * Maps the whole content of a file into memory.
+     *
+     * @param file
+     *            the file to map
+     *
+     * @return the content, or null if the file cannot be mapped at once on this platform
+     *
+     * @throws IOException
+     *             if unable to map the file
+     */
+    static ByteBuffer map(final Path file) throws IOException {
+        if (!MAP_SUPPORTED) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            return size <= Integer.MAX_VALUE ? channel.map(MapMode.READ_ONLY, 0, size) : null;
+        }
+    }
+
+    /**
+     * Replaces a file with another one of the same directory, atomically where the file system supports it.
+     *
+     * @param source
+     *            the replacement, which no longer exists afterwards
+     * @param target
+     *            the file to replace
+     *
+     * @throws IOException
+     *             if unable to replace the file
+     */
+    static void replace(final Path source, final Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (final AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
         }
     }
 
@@ -0,0 +1,160 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+import org.dom4j.DocumentException;
+
+/**
+ * Replaces the content of files in place according to the {@link WriteStrategy}, durability and timestamp settings of
+ * an {@link XmlOutputFormat}.
+ */
+final class InPlaceWriter {
+
+    /**
+     * Produces the new content of a file.
+     */
+    @FunctionalInterface
+    interface Content {
+
+        /**
+         * Writes the content. The stream must not be closed.
+         *
+         * @param out
+         *            where to write the content
+         *
+         * @throws DocumentException
+         *             if the content could not be produced
+         * @throws IOException
+         *             if the content could not be written
+         */
+        void writeTo(OutputStream out) throws DocumentException, IOException;
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final boolean POSIX = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+    private static final String TMP_FILE_SUFFIX = ".tmp";
+
+    private InPlaceWriter() {
+    }
+
+    /**
+     * Replaces the content of a file. Symbolic links are followed, so the file they point to is replaced rather than
+     * the link itself.
+     *
+     * @param file
+     *            the file to replace
+     * @param fmt
+     *            the settings controlling how the file is written
+     * @param readsFile
+     *            true if the content is produced while reading the file itself, which must then stay intact until the
+     *            content is complete
+     * @param content
+     *            the new content
+     *
+     * @throws DocumentException
+     *             if the content could not be produced
+     * @throws IOException
+     *             if the file could not be written
+     */
+    static void write(final File file, final XmlOutputFormat fmt, final boolean readsFile, final Content content)
+            throws DocumentException, IOException {
+        final Path target = file.toPath().toRealPath();
+        final boolean atomic = fmt.getWriteStrategy() == WriteStrategy.ATOMIC;
+        if (!atomic && !readsFile) {
+            overwrite(target, fmt, content);
+            return;
+        }
+
+        // Created next to the target so the final move is a rename within the same file system
+        final Path tmpFile = Files.createTempFile(target.getParent(), "." + target.getFileName() + ".",
+                TMP_FILE_SUFFIX);
+        try {
+            if (atomic) {
+                writeFile(tmpFile, content, fmt.isFsync());
+                copyAttributes(target, tmpFile, fmt.isPreserveTimestamps());
+                IOUtil.replace(tmpFile, target);
+                if (fmt.isFsync()) {
+                    syncDirectory(target.getParent());
+                }
+            } else {
+                writeFile(tmpFile, content, false);
+                overwrite(target, fmt, out -> Files.copy(tmpFile, out));
+            }
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+
+    private static void copyAttributes(final Path source, final Path target, final boolean timestamps)
+            throws IOException {
+        // Temporary files are only readable by their owner, unlike the file they replace
+        if (POSIX) {
+            Files.setPosixFilePermissions(target, Files.getPosixFilePermissions(source));
+        }
+        if (timestamps) {
+            final BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+            Files.getFileAttributeView(target, BasicFileAttributeView.class).setTimes(attributes.lastModifiedTime(),
+                    attributes.lastAccessTime(), attributes.creationTime());
+        }
+    }
+
+    private static void overwrite(final Path target, final XmlOutputFormat fmt, final Content content)
+            throws DocumentException, IOException {
+        final FileTime modified = fmt.isPreserveTimestamps() ? Files.getLastModifiedTime(target) : null;
+        writeFile(target, content, fmt.isFsync());
+        if (modified != null) {
+            Files.setLastModifiedTime(target, modified);
+        }
+    }
+
+    private static void syncDirectory(final Path dir) {
+        // Makes the rename itself durable
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (final IOException ex) {
+            // Not every platform can open or sync a directory, notably Windows, where the rename is durable anyway
+        }
+    }
+
+    private static void writeFile(final Path file, final Content content, final boolean fsync)
+            throws DocumentException, IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+                OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE)) {
+            content.writeTo(out);
+            out.flush();
+            if (fsync) {
+                channel.force(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+/**
+ * Rewrites the line endings of a document without parsing it. XML parsers read every line ending, whether
+ * <code>\r\n</code>, <code>\r</code> or <code>\n</code>, as a single <code>\n</code>, so a document whose line endings
+ * are replaced parses to the same tree and is formatted to the same output. When {@link FormatVerifier} proves the
+ * rewritten document formatted, it therefore is the formatted output of the original document.
+ */
+final class LineEndings {
+
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    private LineEndings() {
+    }
+
+    /**
+     * Replaces every line ending of a document with the given separator.
+     *
+     * @param content
+     *            the raw content of the document
+     * @param separator
+     *            the line separator to use, one of <code>\r\n</code>, <code>\r</code> or <code>\n</code>
+     *
+     * @return the rewritten document, or null if every line ending already is the separator or the separator is not
+     *         a line ending
+     */
+    static byte[] normalize(final byte[] content, final String separator) {
+        final byte[] sep = bytes(separator);
+        if (sep == null || firstDifference(content, sep) < 0) {
+            return null;
+        }
+
+        // First pass sizes the result exactly, the second copies the runs between line endings
+        int length = content.length;
+        for (int i = 0; i < content.length; i++) {
+            final int ending = endingLength(content, i);
+            if (ending > 0) {
+                length += sep.length - ending;
+                i += ending - 1;
+            }
+        }
+        final byte[] normalized = new byte[length];
+        int from = 0;
+        int to = 0;
+        for (int i = 0; i < content.length; i++) {
+            final int ending = endingLength(content, i);
+            if (ending > 0) {
+                System.arraycopy(content, from, normalized, to, i - from);
+                to += i - from;
+                System.arraycopy(sep, 0, normalized, to, sep.length);
+                to += sep.length;
+                i += ending - 1;
+                from = i + 1;
+            }
+        }
+        System.arraycopy(content, from, normalized, to, content.length - from);
+        return normalized;
+    }
+
+    /**
+     * Finds the first line ending that is not the given separator.
+     *
+     * @return the offset of the line ending, or -1 if every line ending is the separator
+     */
+    private static int firstDifference(final byte[] content, final byte[] sep) {
+        for (int i = 0; i < content.length; i++) {
+            final int ending = endingLength(content, i);
+            if (ending > 0) {
+                if (ending != sep.length || content[i] != sep[0]) {
+                    return i;
+                }
+                i += ending - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The number of bytes of the line ending starting at the given offset, or zero if there is none.
+     */
+    private static int endingLength(final byte[] content, final int offset) {
+        final byte b = content[offset];
+        if (b == LF) {
+            return 1;
+        }
+        if (b == CR) {
+            return offset + 1 < content.length && content[offset + 1] == LF ? 2 : 1;
+        }
+        return 0;
+    }
+
+    private static byte[] bytes(final String separator) {
+        switch (separator) {
+            case "\n":
+                return new byte[] {LF};
+            case "\r\n":
+                return new byte[] {CR, LF};
+            case "\r":
+                return new byte[] {CR};
+            default:
+                return null;
+        }
+    }
+}
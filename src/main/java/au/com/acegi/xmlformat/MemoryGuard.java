@@ -0,0 +1,124 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import java.io.Closeable;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Admission control for the heap used while formatting. Each file reserves an estimate of the memory it needs before
+ * being formatted, and waits while other files hold the rest of the budget, so parallel threads can never exhaust the
+ * heap together. A file whose estimate exceeds the whole budget must use a low memory path instead.
+ */
+final class MemoryGuard {
+
+    /**
+     * Shared by all formatting threads, as they share the heap.
+     */
+    static final MemoryGuard HEAP = new MemoryGuard(Runtime.getRuntime().maxMemory() / 2);
+
+    /**
+     * Estimated heap used by a dom4j tree per byte of document, accounting for the objects and strings of each node.
+     * Dense markup such as one short element per line takes about 11 bytes, prose far less.
+     */
+    static final int DOM_BYTES_PER_BYTE = 16;
+
+    /**
+     * Heap used per byte of a file formatted in memory, holding both its content and the formatted output.
+     */
+    static final int IN_MEMORY_BYTES_PER_BYTE = 2;
+
+    private static final int UNIT_SHIFT = 10;
+
+    private final long budget;
+    private final Semaphore units;
+
+    /**
+     * Creates a guard.
+     *
+     * @param budget
+     *            the number of bytes that can be reserved at once
+     */
+    MemoryGuard(final long budget) {
+        this.budget = budget;
+        this.units = new Semaphore(toUnits(budget), true);
+    }
+
+    /**
+     * Indicates whether an estimate can ever be admitted.
+     *
+     * @param bytes
+     *            the estimated memory use
+     *
+     * @return true if the estimate fits in the budget
+     */
+    boolean fits(final long bytes) {
+        return bytes <= budget;
+    }
+
+    /**
+     * Reserves memory, waiting for other files to release it if needed. Estimates larger than the budget reserve the
+     * whole budget, so such files are formatted alone.
+     *
+     * @param bytes
+     *            the estimated memory use
+     *
+     * @return the reservation, to be closed once formatting completes
+     *
+     * @throws InterruptedIOException
+     *             if the thread was interrupted while waiting
+     */
+    Permit acquire(final long bytes) throws InterruptedIOException {
+        final int count = toUnits(Math.min(bytes, budget));
+        try {
+            units.acquire(count);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            final InterruptedIOException ioe = new InterruptedIOException("Interrupted waiting for memory");
+            ioe.initCause(ex);
+            throw ioe;
+        }
+        return new Permit(count);
+    }
+
+    int available() {
+        return units.availablePermits();
+    }
+
+    private static int toUnits(final long bytes) {
+        return (int) Math.min(Integer.MAX_VALUE, (bytes + (1 << UNIT_SHIFT) - 1) >> UNIT_SHIFT);
+    }
+
+    /**
+     * Memory reserved by one file.
+     */
+    final class Permit implements Closeable {
+        private int count;
+
+        Permit(final int count) {
+            this.count = count;
+        }
+
+        @Override
+        public void close() {
+            units.release(count);
+            count = 0;
+        }
+    }
+}
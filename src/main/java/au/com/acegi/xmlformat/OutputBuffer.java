@@ -0,0 +1,102 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Unsynchronized, growable in-memory output stream that can be reset and reused for many documents. Unlike
+ * {@link java.io.ByteArrayOutputStream}, its content can be compared and written without being copied first.
+ */
+final class OutputBuffer extends OutputStream {
+
+    private static final int INITIAL_CAPACITY = 8_192;
+
+    /**
+     * Largest buffer kept between documents; anything bigger is released so a single large file does not pin its
+     * memory for the rest of the build.
+     */
+    private static final int RETAINED_CAPACITY = 1 << 20;
+
+    private byte[] buf = new byte[INITIAL_CAPACITY];
+    private int count;
+
+    /**
+     * Discards the content, keeping the underlying array unless it grew unreasonably large.
+     */
+    void reset() {
+        count = 0;
+        if (buf.length > RETAINED_CAPACITY) {
+            buf = new byte[INITIAL_CAPACITY];
+        }
+    }
+
+    /**
+     * Compares the content with the given bytes.
+     *
+     * @param other
+     *            bytes to compare with
+     *
+     * @return true if the content is identical
+     */
+    boolean sameAs(final byte[] other) {
+        return IOUtil.sameContent(ByteBuffer.wrap(buf, 0, count), ByteBuffer.wrap(other));
+    }
+
+    int size() {
+        return count;
+    }
+
+    @Override
+    public void write(final int b) {
+        ensureCapacity(count + 1);
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) {
+        ensureCapacity(count + len);
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    /**
+     * Writes the content to the given stream.
+     *
+     * @param out
+     *            stream to write to
+     *
+     * @throws IOException
+     *             if the stream could not be written
+     */
+    void writeTo(final OutputStream out) throws IOException {
+        out.write(buf, 0, count);
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (capacity < 0) {
+            throw new OutOfMemoryError("Formatted document too large");
+        }
+        if (capacity > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(capacity, buf.length << 1));
+        }
+    }
+}
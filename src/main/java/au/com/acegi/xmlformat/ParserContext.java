@@ -0,0 +1,142 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import java.io.InputStream;
+import java.util.function.Supplier;
+
+import org.dom4j.Document;
+import org.dom4j.DocumentException;
+import org.dom4j.io.SAXContentHandler;
+import org.dom4j.io.SAXReader;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.ext.DefaultHandler2;
+
+/**
+ * A parser kept by each thread and reused for every document it reads, so the JAXP parser factory lookup and the
+ * creation of the underlying {@link XMLReader} happen once per thread instead of once per file. Virtual threads take
+ * theirs from {@link CpuPermits} instead.
+ * <p>
+ * Between documents, every handler registered on the {@link XMLReader} is replaced by a stateless one so that the
+ * parser does not keep the last document alive.
+ */
+final class ParserContext {
+
+    private static final ThreadLocal<ParserContext> CONTEXTS = ThreadLocal.withInitial(ParserContext::new);
+    private static final DefaultHandler2 NO_HANDLER = new DefaultHandler2();
+    private static final String[] HANDLER_PROPERTIES = {"http://xml.org/sax/properties/lexical-handler",
+        "http://xml.org/sax/handlers/LexicalHandler", "http://xml.org/sax/properties/declaration-handler"};
+
+    private boolean inUse;
+    private final Reader reader = new Reader();
+
+    /**
+     * Creates a context owned by the caller rather than by a thread.
+     */
+    ParserContext() {
+        reader.setEntityResolver(FormatUtil.EMPTY_ENTITY_RESOLVER);
+    }
+
+    /**
+     * Obtains the context of the calling thread, or a new one if it is already reading a document.
+     *
+     * @return the context, to be released with {@link #release()} once the document has been read
+     */
+    static ParserContext acquire() {
+        ParserContext context = CONTEXTS.get();
+        if (context.inUse) {
+            context = new ParserContext();
+        }
+        context.inUse = true;
+        return context;
+    }
+
+    /**
+     * Forgets the context of the calling thread, so that a thread outliving the execution does not keep its parser.
+     */
+    static void forget() {
+        CONTEXTS.remove();
+    }
+
+    /**
+     * Reads a complete document.
+     *
+     * @param in
+     *            input XML stream
+     *
+     * @return the document
+     *
+     * @throws DocumentException
+     *             if input XML could not be parsed
+     */
+    Document read(final InputStream in) throws DocumentException {
+        return reader.read(in);
+    }
+
+    /**
+     * Reads a document, delivering its content to a custom handler rather than building it.
+     *
+     * @param in
+     *            input XML stream
+     * @param handler
+     *            creates the handler receiving the content
+     *
+     * @throws DocumentException
+     *             if input XML could not be parsed
+     */
+    void read(final InputStream in, final Supplier<SAXContentHandler> handler) throws DocumentException {
+        reader.handler = handler;
+        reader.read(in);
+    }
+
+    /**
+     * Makes the context available to the next document, forgetting everything about the last one.
+     */
+    void release() {
+        reader.handler = null;
+        try {
+            final XMLReader xmlReader = reader.getXMLReader();
+            xmlReader.setContentHandler(NO_HANDLER);
+            xmlReader.setErrorHandler(NO_HANDLER);
+            xmlReader.setDTDHandler(NO_HANDLER);
+            for (final String property : HANDLER_PROPERTIES) {
+                try {
+                    xmlReader.setProperty(property, NO_HANDLER);
+                } catch (final SAXException ex) {
+                    // Not supported by this parser, so it cannot hold the handler either
+                }
+            }
+        } catch (final SAXException ex) {
+            // The parser was never created
+        }
+        inUse = false;
+    }
+
+    /**
+     * Reader creating the handler requested for the current document.
+     */
+    private static final class Reader extends SAXReader {
+        private Supplier<SAXContentHandler> handler;
+
+        @Override
+        protected SAXContentHandler createContentHandler(final XMLReader xmlReader) {
+            return handler == null ? super.createContentHandler(xmlReader) : handler.get();
+        }
+    }
+}
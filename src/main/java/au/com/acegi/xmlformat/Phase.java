@@ -0,0 +1,53 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import java.util.Locale;
+
+/**
+ * Steps of checking or formatting a file, timed separately by {@link FormatStatistics}.
+ */
+enum Phase {
+
+    /** Reading a file small enough to be formatted in memory. */
+    READ,
+
+    /** Trying to prove a file formatted from its raw bytes with {@link FormatVerifier}. */
+    VERIFY,
+
+    /** Building the document. The streaming engine writes while parsing, so all its time is counted here. */
+    PARSE,
+
+    /** Writing the formatted document, including the comparison with the file when it is streamed. */
+    SERIALIZE,
+
+    /** Comparing the formatted content held in memory with the file. */
+    COMPARE,
+
+    /** Replacing the content of a file that needed formatting. */
+    WRITE;
+
+    /**
+     * The name of the phase in reports.
+     *
+     * @return the lower case name
+     */
+    String label() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
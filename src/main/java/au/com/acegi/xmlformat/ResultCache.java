@@ -0,0 +1,198 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Record of the files found to be correctly formatted, kept in memory for the lifetime of the plugin class loader. A
+ * long-lived Maven process such as the Maven daemon reuses it across builds, so unchanged files are skipped after a
+ * single <code>stat</code>, before the persistent {@link FormatCache} is even read.
+ * <p>
+ * Entries are keyed by the absolute path of the file and {@link XmlOutputFormat#fingerprint()}, and hold the size and
+ * modification time of the file when it was formatted. The least recently used entries are evicted once the capacity
+ * is reached.
+ */
+final class ResultCache {
+
+    /**
+     * The default maximum number of entries.
+     */
+    static final int DEFAULT_CAPACITY = 50_000;
+
+    private static final ResultCache SHARED = new ResultCache(DEFAULT_CAPACITY);
+    private static final long RACY_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    private final Map<Key, State> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int capacity;
+
+    ResultCache(final int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * The cache shared by all executions of the plugin in this class loader.
+     *
+     * @param capacity
+     *            the maximum number of entries, applied to the shared cache from now on
+     *
+     * @return the shared cache
+     */
+    static ResultCache shared(final int capacity) {
+        SHARED.setCapacity(capacity);
+        return SHARED;
+    }
+
+    /**
+     * Checks whether the file is known to be correctly formatted in its current state.
+     *
+     * @param file
+     *            the file
+     * @param fingerprint
+     *            the fingerprint of the format configuration
+     *
+     * @return true if the file was correctly formatted and its size and modification time have not changed since
+     *
+     * @throws IOException
+     *             if the file attributes could not be read
+     */
+    boolean isFormatted(final File file, final String fingerprint) throws IOException {
+        final Key key = new Key(file, fingerprint);
+        final State state;
+        synchronized (this) {
+            state = entries.get(key);
+        }
+        return state != null && state.equals(State.of(file));
+    }
+
+    /**
+     * Records the file as correctly formatted in its current state. Files modified too recently to be told apart from a
+     * later modification by their timestamp are not recorded.
+     *
+     * @param file
+     *            the file
+     * @param fingerprint
+     *            the fingerprint of the format configuration
+     *
+     * @throws IOException
+     *             if the file attributes could not be read
+     */
+    void recordFormatted(final File file, final String fingerprint) throws IOException {
+        final State state = State.of(file);
+        final long now = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        if (now - state.modified < RACY_WINDOW_NANOS) {
+            return;
+        }
+        final Key key = new Key(file, fingerprint);
+        synchronized (this) {
+            entries.put(key, state);
+            evict();
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void setCapacity(final int capacity) {
+        this.capacity = capacity;
+        evict();
+    }
+
+    private void evict() {
+        while (entries.size() > capacity) {
+            entries.remove(entries.keySet().iterator().next());
+        }
+    }
+
+    /**
+     * Identity of a file checked with a format configuration.
+     */
+    private static final class Key {
+        private final String fingerprint;
+        private final String path;
+
+        Key(final File file, final String fingerprint) {
+            this.path = file.getAbsolutePath();
+            this.fingerprint = fingerprint;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return path.equals(other.path) && fingerprint.equals(other.fingerprint);
+        }
+
+        @Override
+        public int hashCode() {
+            return path.hashCode() * 31 + fingerprint.hashCode();
+        }
+    }
+
+    /**
+     * Size and modification time of a file, which change whenever it is written.
+     */
+    static final class State {
+        private final long modified;
+        private final long size;
+
+        State(final long size, final long modified) {
+            this.size = size;
+            this.modified = modified;
+        }
+
+        /**
+         * Reads the state of a file with a single <code>stat</code>.
+         *
+         * @param file
+         *            the file
+         *
+         * @return its current state
+         *
+         * @throws IOException
+         *             if the file attributes could not be read
+         */
+        static State of(final File file) throws IOException {
+            final BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            return new State(attributes.size(), attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof State)) {
+                return false;
+            }
+            final State other = (State) obj;
+            return size == other.size && modified == other.modified;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(size) * 31 + Long.hashCode(modified);
+        }
+    }
+}
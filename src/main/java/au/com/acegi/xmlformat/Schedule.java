@@ -0,0 +1,43 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+/**
+ * Orders in which files are processed by several threads. Files are always reported in the order they were found, so
+ * the order only influences how long the execution takes.
+ */
+public enum Schedule {
+
+    /**
+     * Processes files in the order they were found.
+     */
+    DISCOVERY,
+
+    /**
+     * Processes the largest files first, so a large file found last does not delay the end of the execution while the
+     * other threads are idle.
+     */
+    SIZE,
+
+    /**
+     * Processes first the files that took longest during the previous execution, as recorded in the cache directory.
+     * Files without a recorded duration are estimated from their size.
+     */
+    HISTORY
+
+}
@@ -0,0 +1,200 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed record of the documents known to be correctly formatted, independent of where the files are. As
+ * entries only depend on the content of the files and on the formatter configuration, the cache can be shared by
+ * every branch and checkout on a machine, and persisted between CI jobs that start from a fresh checkout.
+ * <p>
+ * Each entry is an empty file named after the hash and size of a formatted document, in a directory named after a
+ * hash of {@link XmlOutputFormat#fingerprint()}. Entries are written under a temporary name then renamed, so several
+ * Maven processes can share the cache without locking. Their modification time records when they were last used, and
+ * the least recently used entries are deleted once the cache holds more than its capacity.
+ */
+final class SharedCache {
+
+    /**
+     * The default maximum number of entries.
+     */
+    static final int DEFAULT_CAPACITY = 100_000;
+
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final long TOUCH_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final AtomicInteger added = new AtomicInteger();
+    private final int capacity;
+    private final Path directory;
+    private final Path root;
+
+    private SharedCache(final Path root, final Path directory, final int capacity) {
+        this.root = root;
+        this.directory = directory;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Opens the cache stored in the given directory for the given formatter configuration.
+     *
+     * @param root
+     *            where the cache is stored, shared by all formatter configurations
+     * @param fmt
+     *            format configuration the cached results apply to
+     * @param capacity
+     *            the maximum number of entries of all configurations kept by {@link #evict()}
+     *
+     * @return the cache
+     */
+    static SharedCache open(final File root, final XmlOutputFormat fmt, final int capacity) {
+        final String fingerprint = fmt.fingerprint() + ";hash=" + FormatCache.HASH;
+        final String name = Long.toHexString(FormatCache.HASH.hash(ByteBuffer.wrap(fingerprint.getBytes(UTF_8))));
+        final Path rootPath = root.toPath();
+        return new SharedCache(rootPath, rootPath.resolve(name), capacity);
+    }
+
+    /**
+     * Checks whether a document is known to be correctly formatted.
+     *
+     * @param hash
+     *            the {@link FormatCache#HASH} of the document
+     * @param size
+     *            the size of the document
+     *
+     * @return true if a document with the same hash and size was correctly formatted
+     */
+    boolean isFormatted(final long hash, final long size) {
+        final File entry = entry(hash, size).toFile();
+        final long modified = entry.lastModified();
+        if (modified == 0) {
+            return false;
+        }
+        final long now = System.currentTimeMillis();
+        if (now - modified > TOUCH_INTERVAL_MILLIS) {
+            // Best effort, an entry deleted meanwhile is simply recorded again next time
+            entry.setLastModified(now);
+        }
+        return true;
+    }
+
+    /**
+     * Records a document as correctly formatted.
+     *
+     * @param hash
+     *            the {@link FormatCache#HASH} of the document
+     * @param size
+     *            the size of the document
+     *
+     * @throws IOException
+     *             if the entry could not be written
+     */
+    void recordFormatted(final long hash, final long size) throws IOException {
+        final Path entry = entry(hash, size);
+        if (Files.exists(entry)) {
+            return;
+        }
+        final Path dir = entry.getParent();
+        Files.createDirectories(dir);
+        final Path tmp = Files.createTempFile(dir, entry.getFileName().toString(), TMP_SUFFIX);
+        try {
+            try {
+                Files.move(tmp, entry, REPLACE_EXISTING, ATOMIC_MOVE);
+            } catch (final AtomicMoveNotSupportedException ex) {
+                Files.move(tmp, entry, REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        added.incrementAndGet();
+    }
+
+    /**
+     * Deletes the least recently used entries of all configurations while the cache holds more than its capacity, as
+     * well as temporary files left behind by interrupted processes. Nothing is done unless entries were recorded by
+     * this instance, so executions finding every file in the cache do not scan it.
+     *
+     * @return the number of entries deleted
+     *
+     * @throws IOException
+     *             if the cache could not be listed
+     */
+    int evict() throws IOException {
+        if (added.get() == 0 || !Files.isDirectory(root)) {
+            return 0;
+        }
+        final long staleBefore = System.currentTimeMillis() - TOUCH_INTERVAL_MILLIS;
+        final List<Path> entries = new ArrayList<>();
+        final List<Long> used = new ArrayList<>();
+        try (Stream<Path> files = Files.find(root, 3, (path, attrs) -> attrs.isRegularFile())) {
+            files.forEach(path -> {
+                // Zero if deleted meanwhile by a concurrent eviction
+                final long modified = path.toFile().lastModified();
+                if (path.getFileName().toString().endsWith(TMP_SUFFIX)) {
+                    if (modified < staleBefore) {
+                        delete(path);
+                    }
+                } else if (modified > 0) {
+                    entries.add(path);
+                    used.add(modified);
+                }
+            });
+        }
+        final int excess = entries.size() - capacity;
+        if (excess <= 0) {
+            return 0;
+        }
+        final List<Integer> order = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.comparingLong(used::get));
+        for (int i = 0; i < excess; i++) {
+            delete(entries.get(order.get(i)));
+        }
+        return excess;
+    }
+
+    private Path entry(final long hash, final long size) {
+        final String name = String.format("%016x", hash);
+        return directory.resolve(name.substring(0, 2)).resolve(name + "-" + Long.toHexString(size));
+    }
+
+    private static void delete(final Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (final IOException ex) {
+            // Left for the next eviction
+        }
+    }
+}
@@ -0,0 +1,531 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import static org.dom4j.util.StringUtils.endsWithWhitespace;
+import static org.dom4j.util.StringUtils.startsWithWhitespace;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.dom4j.Attribute;
+import org.dom4j.Branch;
+import org.dom4j.DocumentException;
+import org.dom4j.DocumentFactory;
+import org.dom4j.DocumentType;
+import org.dom4j.Element;
+import org.dom4j.ElementPath;
+import org.dom4j.Namespace;
+import org.dom4j.Node;
+import org.dom4j.io.SAXContentHandler;
+import org.dom4j.io.XMLWriter;
+import org.dom4j.tree.NamespaceStack;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+
+/**
+ * Formats a document in a single pass while it is being parsed, producing the same output as writing a fully built
+ * DOM4J document with {@link XMLWriter} or {@link BlankLinesWriter}.
+ * <p>
+ * Parsing is still performed by {@link org.dom4j.io.SAXReader} so the parser configuration, and the way DOM4J models namespaces,
+ * attributes and entities, are unchanged. Every node is however written and discarded as soon as possible: only the
+ * elements currently open (with their attributes) and the text run being trimmed are kept in memory. The decisions
+ * {@link XMLWriter} takes while walking a complete element are taken incrementally instead, which works because they
+ * only ever depend on content that has already been seen.
+ */
+final class StreamingFormatter extends XMLWriter {
+
+    private static final String PAD_TEXT = " ";
+
+    private DocumentType docType;
+    private final DocumentFactory factory = DocumentFactory.getInstance();
+    private final Deque<Frame> frames = new ArrayDeque<>();
+    private final boolean keepBlankLines;
+    private int level;
+    private final NamespaceStack namespaces = new NamespaceStack();
+    private final List<Node> prolog = new ArrayList<>();
+    private boolean rootStarted;
+
+    private StreamingFormatter(final OutputStream out, final XmlOutputFormat fmt) throws UnsupportedEncodingException {
+        super(out, fmt);
+        this.keepBlankLines = fmt.isKeepBlankLines();
+        namespaces.push(Namespace.NO_NAMESPACE);
+    }
+
+    /**
+     * Ingest an input stream, writing formatted XML to the output stream. The caller is responsible for closing the
+     * input and output streams. Any errors in the input stream will cause an exception and the output stream should not
+     * be relied upon.
+     *
+     * @param in
+     *            input XML stream
+     * @param out
+     *            output XML stream
+     * @param fmt
+     *            format configuration to apply
+     * @param parser
+     *            the parser reading the input, released by the caller
+     *
+     * @throws DocumentException
+     *             if input XML could not be parsed
+     * @throws IOException
+     *             if output XML stream could not be written
+     */
+    static void format(final InputStream in, final OutputStream out, final XmlOutputFormat fmt,
+            final ParserContext parser) throws DocumentException, IOException {
+        final StreamingFormatter formatter = new StreamingFormatter(out, fmt);
+        try {
+            parser.read(in, formatter::createHandler);
+        } catch (final DocumentException ex) {
+            // Output failures are tunnelled through the parser, report them as such
+            final Throwable cause = ex.getCause();
+            if (cause instanceof SAXException && ((SAXException) cause).getException() instanceof IOException) {
+                throw (IOException) ((SAXException) cause).getException();
+            }
+            throw ex;
+        }
+        formatter.flush();
+    }
+
+    private SAXContentHandler createHandler() {
+        return new Handler();
+    }
+
+    @Override
+    protected void writeString(final String text) throws IOException {
+        if (!keepBlankLines) {
+            super.writeString(text);
+            return;
+        }
+        if (text == null || text.length() == 0) {
+            return;
+        }
+
+        String input = text;
+        if (isEscapeText()) {
+            input = escapeElementEntities(text);
+        }
+
+        if (getOutputFormat().isTrimText()) {
+            lastOutputNodeType = BlankLinesWriter.writeTrimmed(writer, input, lastOutputNodeType);
+        } else {
+            lastOutputNodeType = Node.TEXT_NODE;
+            writer.write(input);
+        }
+    }
+
+    private void startRoot() throws IOException {
+        if (docType != null) {
+            indent();
+            writeDocType(docType);
+        }
+        for (final Node node : prolog) {
+            writeNode(node);
+        }
+        prolog.clear();
+        rootStarted = true;
+    }
+
+    /**
+     * Equivalent of the start of {@link XMLWriter#writeElement(Element)}. The element only holds its declared
+     * namespaces and attributes.
+     */
+    private void startElement(final Element element) throws IOException {
+        final Frame parent = frames.peek();
+        if (parent == null) {
+            startRoot();
+        } else {
+            beforeNode(parent, true);
+        }
+
+        writePrintln();
+        indent();
+
+        writer.write("<");
+        writer.write(element.getQualifiedName());
+
+        final Frame frame = new Frame(element, namespaces.size());
+        final Namespace ns = element.getNamespace();
+        if (isDeclaration(ns)) {
+            namespaces.push(ns);
+            writeNamespace(ns);
+        }
+        for (final Namespace additional : element.declaredNamespaces()) {
+            if (isDeclaration(additional)) {
+                namespaces.push(additional);
+                writeNamespace(additional);
+            }
+        }
+        writeElementAttributes(element);
+
+        lastOutputNodeType = Node.ELEMENT_NODE;
+        frames.push(frame);
+
+        // Declared namespaces are content nodes as far as XMLWriter is concerned
+        if (element.nodeCount() > 0) {
+            open(frame);
+            frame.contentTextOnly = false;
+        }
+    }
+
+    /**
+     * Equivalent of the end of {@link XMLWriter#writeElement(Element)} and
+     * {@link XMLWriter#writeElementContent(Element)}.
+     */
+    private void endElement() throws IOException {
+        final Frame frame = frames.pop();
+        final String qualifiedName = frame.element.getQualifiedName();
+        if (frame.open) {
+            if (frame.trim && frame.firstText != null) {
+                if (!frame.contentTextOnly && getOutputFormat().isPadText() && startsWithWhitespace(frame.firstText)) {
+                    writer.write(PAD_TEXT);
+                }
+                writeString(frame.takeText());
+            }
+            preserve = frame.oldPreserve;
+
+            setIndentLevel(--level);
+            if (!frame.textOnly) {
+                writePrintln();
+                indent();
+            }
+            writeClose(qualifiedName);
+        } else {
+            writeEmptyElementClose(qualifiedName);
+        }
+
+        while (namespaces.size() > frame.namespaceDepth) {
+            namespaces.pop();
+        }
+        lastOutputNodeType = Node.ELEMENT_NODE;
+    }
+
+    private void text(final String text) throws IOException {
+        final Frame frame = frames.peek();
+        open(frame);
+        if (frame.trim) {
+            // Adjacent text nodes are concatenated so whitespace trimming works across them
+            frame.addText(text);
+        } else {
+            writeNodeText(factory.createText(text));
+            frame.lastText = text;
+        }
+    }
+
+    private void node(final Node node) throws IOException {
+        final Frame frame = frames.peek();
+        if (frame == null) {
+            if (rootStarted) {
+                writeNode(node);
+            } else {
+                // The document type is always written first, even if it follows comments in the input
+                prolog.add(node);
+            }
+            return;
+        }
+        beforeNode(frame, node.getNodeType() == Node.COMMENT_NODE);
+        writeNode(node);
+    }
+
+    /**
+     * Writes the pending text of an element before one of its non-text content nodes.
+     */
+    private void beforeNode(final Frame frame, final boolean elementOrComment) throws IOException {
+        open(frame);
+        if (elementOrComment) {
+            frame.textOnly = false;
+        }
+
+        final boolean padText = getOutputFormat().isPadText();
+        if (frame.trim) {
+            if (!frame.contentTextOnly && padText && frame.firstText != null
+                    && startsWithWhitespace(frame.firstText)) {
+                writer.write(PAD_TEXT);
+            }
+            if (frame.firstText != null) {
+                // XMLWriter checks the first text node of the run, not the concatenated text
+                final boolean endsWithWhitespace = endsWithWhitespace(frame.firstText);
+                writeString(frame.takeText());
+                if (padText && endsWithWhitespace) {
+                    writer.write(PAD_TEXT);
+                }
+            }
+            frame.contentTextOnly = false;
+        } else {
+            if (frame.lastText != null && padText && endsWithWhitespace(frame.lastText)) {
+                writer.write(PAD_TEXT);
+            }
+            frame.lastText = null;
+        }
+    }
+
+    /**
+     * Closes the start tag once the element is known to have content.
+     */
+    private void open(final Frame frame) throws IOException {
+        if (frame.open) {
+            return;
+        }
+        writer.write(">");
+        frame.open = true;
+
+        // Only consulted by child elements and comments, so harmless for text only elements
+        setIndentLevel(++level);
+
+        frame.oldPreserve = preserve;
+        frame.trim = getOutputFormat().isTrimText();
+        if (frame.trim) {
+            preserve = isElementSpacePreserved(frame.element);
+            frame.trim = !preserve;
+        }
+    }
+
+    /**
+     * Equivalent of {@link XMLWriter#isNamespaceDeclaration(Namespace)} against the namespaces of this writer. Like
+     * {@link XMLWriter}, the constant namespaces are compared by identity, so both engines write the same output.
+     */
+    @SuppressWarnings("ReferenceEquality")
+    private boolean isDeclaration(final Namespace ns) {
+        return ns != null && ns != Namespace.XML_NAMESPACE && ns.getURI() != null && !namespaces.contains(ns);
+    }
+
+    /**
+     * Equivalent of {@link XMLWriter#writeAttributes(Element)} against the namespaces of this writer, comparing the
+     * constant namespaces by identity as well.
+     */
+    @SuppressWarnings("ReferenceEquality")
+    private void writeElementAttributes(final Element element) throws IOException {
+        for (int i = 0, size = element.attributeCount(); i < size; i++) {
+            final Attribute attribute = element.attribute(i);
+            final Namespace ns = attribute.getNamespace();
+
+            if (ns != null && ns != Namespace.NO_NAMESPACE && ns != Namespace.XML_NAMESPACE
+                    && !ns.getURI().equals(namespaces.getURI(ns.getPrefix()))) {
+                writeNamespace(ns);
+                namespaces.push(ns);
+            }
+
+            final String attName = attribute.getName();
+            if (attName.startsWith("xmlns:")) {
+                final String prefix = attName.substring(6);
+                if (namespaces.getNamespaceForPrefix(prefix) == null) {
+                    final String uri = attribute.getValue();
+                    namespaces.push(prefix, uri);
+                    writeNamespace(prefix, uri);
+                }
+            } else if ("xmlns".equals(attName)) {
+                if (namespaces.getDefaultNamespace() == null) {
+                    final String uri = attribute.getValue();
+                    namespaces.push(null, uri);
+                    writeNamespace(null, uri);
+                }
+            } else {
+                writeAttribute(attribute);
+            }
+        }
+    }
+
+    /**
+     * Writing state of an element that has been started but not yet ended.
+     */
+    private static final class Frame {
+        private boolean contentTextOnly = true;
+        private final Element element;
+        private String firstText;
+        private String lastText;
+        private final int namespaceDepth;
+        private boolean oldPreserve;
+        private boolean open;
+        private StringBuilder text;
+        private boolean textOnly = true;
+        private boolean trim;
+
+        Frame(final Element element, final int namespaceDepth) {
+            this.element = element;
+            this.namespaceDepth = namespaceDepth;
+        }
+
+        void addText(final String value) {
+            if (firstText == null) {
+                firstText = value;
+            } else {
+                if (text == null) {
+                    text = new StringBuilder(firstText);
+                }
+                text.append(value);
+            }
+        }
+
+        String takeText() {
+            final String value = text == null ? firstText : text.toString();
+            firstText = null;
+            text = null;
+            return value;
+        }
+    }
+
+    /**
+     * Receives the parser events, relying on {@link SAXContentHandler} to model elements exactly as DOM4J does, but
+     * detaching every element from its parent so the document never grows.
+     */
+    private final class Handler extends SAXContentHandler {
+        private StringBuilder cdata;
+        private String entity;
+        private boolean insideCdata;
+        private boolean insideDtd;
+
+        Handler() {
+            super(DocumentFactory.getInstance(), null);
+        }
+
+        @Override
+        public void characters(final char[] ch, final int start, final int length) throws SAXException {
+            if (length == 0 || frames.isEmpty()) {
+                return;
+            }
+            try {
+                if (entity != null) {
+                    node(factory.createEntity(entity, new String(ch, start, length)));
+                    entity = null;
+                } else if (insideCdata) {
+                    cdata.append(ch, start, length);
+                } else {
+                    text(new String(ch, start, length));
+                }
+            } catch (final IOException ex) {
+                throw new SAXException(ex);
+            }
+        }
+
+        @Override
+        public void comment(final char[] ch, final int start, final int length) throws SAXException {
+            if (!insideDtd && length > 0) {
+                try {
+                    node(factory.createComment(new String(ch, start, length)));
+                } catch (final IOException ex) {
+                    throw new SAXException(ex);
+                }
+            }
+        }
+
+        @Override
+        public void endCDATA() throws SAXException {
+            insideCdata = false;
+            try {
+                node(factory.createCDATA(cdata.toString()));
+            } catch (final IOException ex) {
+                throw new SAXException(ex);
+            }
+            cdata = null;
+        }
+
+        @Override
+        public void endDocument() throws SAXException {
+            try {
+                writePrintln();
+            } catch (final IOException ex) {
+                throw new SAXException(ex);
+            }
+            super.endDocument();
+        }
+
+        @Override
+        public void endDTD() throws SAXException {
+            super.endDTD();
+            insideDtd = false;
+            docType = getDocument().getDocType();
+        }
+
+        @Override
+        public void endElement(final String namespaceURI, final String localName, final String qName)
+                throws SAXException {
+            try {
+                StreamingFormatter.this.endElement();
+            } catch (final IOException ex) {
+                throw new SAXException(ex);
+            }
+            super.endElement(namespaceURI, localName, qName);
+        }
+
+        @Override
+        public void endEntity(final String name) throws SAXException {
+            super.endEntity(name);
+            entity = null;
+        }
+
+        @Override
+        public void processingInstruction(final String target, final String data) throws SAXException {
+            try {
+                node(factory.createProcessingInstruction(target, data));
+            } catch (final IOException ex) {
+                throw new SAXException(ex);
+            }
+        }
+
+        @Override
+        public void startCDATA() throws SAXException {
+            insideCdata = true;
+            cdata = new StringBuilder();
+        }
+
+        @Override
+        public void startDocument() throws SAXException {
+            super.startDocument();
+            try {
+                writeDeclaration();
+            } catch (final IOException ex) {
+                throw new SAXException(ex);
+            }
+        }
+
+        @Override
+        public void startDTD(final String name, final String publicId, final String systemId) throws SAXException {
+            super.startDTD(name, publicId, systemId);
+            insideDtd = true;
+        }
+
+        @Override
+        public void startElement(final String namespaceURI, final String localName, final String qualifiedName,
+                final Attributes attributes) throws SAXException {
+            super.startElement(namespaceURI, localName, qualifiedName, attributes);
+            entity = null;
+
+            final ElementPath path = getElementStack();
+            final Element element = path.getCurrent();
+            final Branch parent = element.getParent() == null ? element.getDocument() : element.getParent();
+            parent.remove(element);
+            try {
+                StreamingFormatter.this.startElement(element);
+            } catch (final IOException ex) {
+                throw new SAXException(ex);
+            }
+        }
+
+        @Override
+        public void startEntity(final String name) throws SAXException {
+            super.startEntity(name);
+            entity = insideDtd || isIgnorableEntity(name) ? null : name;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+/**
+ * Ways of replacing the content of a file that needed formatting.
+ */
+public enum WriteStrategy {
+
+    /**
+     * Writes the new content to a temporary file in the same directory, then renames it over the original file.
+     * Readers and concurrent builds only ever see the old or the new content, never a partially written file. The file
+     * keeps its permissions but becomes a new file, so hard links to the original are not updated.
+     */
+    ATOMIC,
+
+    /**
+     * Truncates the original file and writes the new content into it. Hard links, ownership and access control lists
+     * are kept, but an interrupted write leaves the file truncated.
+     */
+    OVERWRITE
+
+}
@@ -17,15 +17,18 @@
  */
 package au.com.acegi.xmlformat;
 
-import static au.com.acegi.xmlformat.FormatUtil.needsFormatting;
+import static au.com.acegi.xmlformat.FormatUtil.findDifference;
 import static org.apache.maven.plugins.annotations.LifecyclePhase.PROCESS_SOURCES;
 
+import au.com.acegi.xmlformat.ComparingOutputStream.Difference;
+
 import java.io.File;
 import java.io.IOException;
 
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
 import org.dom4j.DocumentException;
 
 /**
@@ -33,20 +36,51 @@ import org.dom4j.DocumentException;
  * not follow the formatting conventions.
  */
 @Mojo(name = "xml-check", defaultPhase = PROCESS_SOURCES, threadSafe = true)
-public final class XmlCheckPlugin extends AbstractXmlPlugin {
+@SuppressWarnings("DesignForExtension")
+public class XmlCheckPlugin extends AbstractXmlPlugin {
+
+    /**
+     * Whether to stop at the first file needing formatting or failing to parse, without checking the remaining files.
+     */
+    @Parameter(property = "xml-format.failFast", defaultValue = "false")
+    private boolean failFast;
+
+    /**
+     * The number of files needing formatting or failing to parse after which the remaining files are not checked. Zero
+     * checks every file, unless <code>failFast</code> is set.
+     */
+    @Parameter(property = "xml-format.maxViolations", defaultValue = "0")
+    private int maxViolations;
+
+    @Override
+    int violationLimit() {
+        if (maxViolations > 0) {
+            return maxViolations;
+        }
+        return failFast ? 1 : 0;
+    }
 
     @Override
     protected boolean processFile(final File input, final XmlOutputFormat fmt) throws DocumentException, IOException {
-        final boolean needsFormatting = needsFormatting(input, fmt);
+        final Difference difference = findDifference(input, fmt);
+        final boolean needsFormatting = difference != null;
         final Log log = getLog();
         if (needsFormatting && log.isErrorEnabled()) {
-            log.error("[xml-check] Needs formatting:" + input);
+            log.error("[xml-check] Needs formatting:" + input + " (first difference at " + difference + ")");
         } else if (log.isDebugEnabled()) {
             log.debug("[xml-check] Correctly formatted: " + input);
         }
         return needsFormatting;
     }
 
+    void setFailFast(final boolean failFast) {
+        this.failFast = failFast;
+    }
+
+    void setMaxViolations(final int maxViolations) {
+        this.maxViolations = maxViolations;
+    }
+
     @Override
     protected void afterAllProcessed(final boolean neededFormatting) throws MojoExecutionException {
         if (neededFormatting) {
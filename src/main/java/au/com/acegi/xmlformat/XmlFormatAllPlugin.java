@@ -0,0 +1,33 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import org.apache.maven.plugins.annotations.Mojo;
+
+/**
+ * Reformats the XML files of every project in the reactor at once. Files are discovered once per project and processed
+ * on a single pool of threads shared by all projects, so large and small modules balance each other.
+ */
+@Mojo(name = "format-all", aggregator = true, threadSafe = true)
+public final class XmlFormatAllPlugin extends XmlFormatPlugin {
+
+    @Override
+    boolean isAggregator() {
+        return true;
+    }
+}
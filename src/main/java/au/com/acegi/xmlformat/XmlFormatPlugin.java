@@ -30,7 +30,8 @@ import org.dom4j.DocumentException;
  * Finds the XML files in a project and automatically reformats them.
  */
 @Mojo(name = "xml-format", defaultPhase = PREPARE_PACKAGE, threadSafe = true)
-public final class XmlFormatPlugin extends AbstractXmlPlugin {
+@SuppressWarnings("DesignForExtension")
+public class XmlFormatPlugin extends AbstractXmlPlugin {
 
     @Override
     protected boolean processFile(final File input, final XmlOutputFormat fmt) throws DocumentException, IOException {
@@ -42,6 +43,11 @@ public final class XmlFormatPlugin extends AbstractXmlPlugin {
         return changed;
     }
 
+    @Override
+    protected boolean isFormattedAfter(final boolean neededFormatting) {
+        return true;
+    }
+
     @Override
     protected void afterAllProcessed(final boolean neededFormatting) {
         // nothing to do
@@ -24,11 +24,24 @@ import org.dom4j.io.OutputFormat;
  * <ul>
  * <li>Defaults to pretty print.
  * <li>Adds an option to keep blank lines.
+ * <li>Adds options controlling how files are read and written, which never influence the formatted output.
  * </ul>
  */
 public class XmlOutputFormat extends OutputFormat {
 
+    /**
+     * Default for {@link #getInMemoryThreshold()}.
+     */
+    public static final long DEFAULT_IN_MEMORY_THRESHOLD = 8L << 20;
+
+    private CpuPermits cpuPermits;
+    private FormatEngine engine = FormatEngine.DOM;
+    private boolean fsync = true;
+    private long inMemoryThreshold = DEFAULT_IN_MEMORY_THRESHOLD;
     private boolean keepBlankLines;
+    private boolean preserveTimestamps;
+    private final FormatStatistics statistics = new FormatStatistics();
+    private WriteStrategy writeStrategy = WriteStrategy.ATOMIC;
 
     /**
      * Instantiates a new xml output format.
@@ -41,6 +54,86 @@ public class XmlOutputFormat extends OutputFormat {
         setPadText(true);
     }
 
+    /**
+     * Limits the number of threads parsing and serializing documents at the same time, while reading and writing
+     * files is not limited. Defaults to <code>null</code>, leaving the number of threads formatting to the caller.
+     *
+     * @return the permits, one being held by each thread formatting a document, or null
+     */
+    CpuPermits getCpuPermits() {
+        return cpuPermits;
+    }
+
+    /**
+     * Sets the limit of threads parsing and serializing documents at the same time.
+     *
+     * @param cpuPermits
+     *            the permits, or null for no limit
+     */
+    void setCpuPermits(final CpuPermits cpuPermits) {
+        this.cpuPermits = cpuPermits;
+    }
+
+    /**
+     * The engine used to format documents. Defaults to {@link FormatEngine#DOM}.
+     *
+     * @return the engine
+     */
+    public FormatEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Sets the engine used to format documents.
+     *
+     * @param engine
+     *            the engine
+     */
+    public void setEngine(final FormatEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Whether rewritten files are flushed to the storage device before the write is considered complete, so they
+     * survive a crash or power loss. Defaults to <code>true</code>.
+     *
+     * @return true if rewritten files are synced
+     */
+    public boolean isFsync() {
+        return fsync;
+    }
+
+    /**
+     * Sets whether rewritten files are flushed to the storage device.
+     *
+     * @param fsync
+     *            true for durable writes, false to leave flushing to the operating system
+     */
+    public void setFsync(final boolean fsync) {
+        this.fsync = fsync;
+    }
+
+    /**
+     * Files up to this size (in bytes) are formatted entirely in memory and compared with their original content
+     * without temporary files. Larger files are streamed through a temporary file instead. Defaults to
+     * {@value #DEFAULT_IN_MEMORY_THRESHOLD}.
+     *
+     * @return the largest file size formatted in memory
+     */
+    public long getInMemoryThreshold() {
+        return inMemoryThreshold;
+    }
+
+    /**
+     * Sets the largest file size (in bytes) formatted entirely in memory.
+     *
+     * @param inMemoryThreshold
+     *            the largest file size formatted in memory, or zero to always stream through a temporary file
+     */
+    public void setInMemoryThreshold(final long inMemoryThreshold) {
+        this.inMemoryThreshold = inMemoryThreshold;
+    }
+
     /**
      * When set to true, preserves at most one blank line between tags, if it was alredy present in the input file.
      * Defaults to <code>false</code>.
@@ -60,4 +153,76 @@ public class XmlOutputFormat extends OutputFormat {
     public void setKeepBlankLines(final boolean keepBlankLines) {
         this.keepBlankLines = keepBlankLines;
     }
+
+    /**
+     * Whether rewritten files keep their original timestamps. Defaults to <code>false</code>, so tools relying on
+     * modification times notice the new content.
+     *
+     * @return true if timestamps are preserved
+     */
+    public boolean isPreserveTimestamps() {
+        return preserveTimestamps;
+    }
+
+    /**
+     * Sets whether rewritten files keep their original timestamps.
+     *
+     * @param preserveTimestamps
+     *            true to preserve timestamps
+     */
+    public void setPreserveTimestamps(final boolean preserveTimestamps) {
+        this.preserveTimestamps = preserveTimestamps;
+    }
+
+    /**
+     * Counters of the files checked or formatted with this configuration.
+     *
+     * @return the statistics
+     */
+    FormatStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * How files needing formatting are rewritten. Defaults to {@link WriteStrategy#ATOMIC}.
+     *
+     * @return the write strategy
+     */
+    public WriteStrategy getWriteStrategy() {
+        return writeStrategy;
+    }
+
+    /**
+     * Sets how files needing formatting are rewritten.
+     *
+     * @param writeStrategy
+     *            the write strategy
+     */
+    public void setWriteStrategy(final WriteStrategy writeStrategy) {
+        this.writeStrategy = writeStrategy;
+    }
+
+    /**
+     * Describes every setting that influences the formatted output, so results produced under one configuration are
+     * never mistaken for results of another.
+     *
+     * @return a stable description of this configuration
+     */
+    String fingerprint() {
+        return "indent=" + getIndent()
+                + ";newlines=" + isNewlines()
+                + ";lineSeparator=" + getLineSeparator()
+                + ";encoding=" + getEncoding()
+                + ";omitEncoding=" + isOmitEncoding()
+                + ";suppressDeclaration=" + isSuppressDeclaration()
+                + ";newLineAfterDeclaration=" + isNewLineAfterDeclaration()
+                + ";expandEmptyElements=" + isExpandEmptyElements()
+                + ";trimText=" + isTrimText()
+                + ";padText=" + isPadText()
+                + ";xhtml=" + isXHTML()
+                + ";newLineAfterNTags=" + getNewLineAfterNTags()
+                + ";attributeQuoteCharacter=" + getAttributeQuoteCharacter()
+                + ";keepBlankLines=" + keepBlankLines
+                + ";version=" + XmlOutputFormat.class.getPackage().getImplementationVersion();
+    }
 }
@@ -0,0 +1,100 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import static au.com.acegi.xmlformat.FormatUtil.formatInPlace;
+import static au.com.acegi.xmlformat.FormatUtil.releaseThreadResources;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.dom4j.DocumentException;
+
+/**
+ * Reformats the XML files of a project, then keeps running and reformats each file as soon as it changes, until
+ * interrupted. The formatter stays loaded between changes, so each change only costs formatting a single file.
+ */
+@Mojo(name = "watch", threadSafe = true)
+public final class XmlWatchPlugin extends XmlFormatPlugin {
+
+    /**
+     * How long (in milliseconds) a file must stay unchanged before it is reformatted, so an editor saving a file in
+     * several steps triggers a single format.
+     */
+    @Parameter(property = "xml-format.watchDebounce", defaultValue = "100")
+    private long watchDebounce = 100;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        try {
+            super.execute();
+        } catch (final MojoFailureException ex) {
+            getLog().warn("[xml-format] Some files could not be formatted, watching them for fixes");
+        }
+        if (isSkip()) {
+            return;
+        }
+
+        final XmlOutputFormat fmt = buildFormatter();
+        final Set<File> known = new HashSet<>();
+        for (final File file : findFiles()) {
+            known.add(file.getAbsoluteFile());
+        }
+        try (FileWatcher watcher = new FileWatcher(getBaseDirectory(), watchDebounce, this::isSkippedDirectory,
+                file -> known.contains(file.getAbsoluteFile()) || included(file), file -> format(file, fmt))) {
+            getLog().info("[xml-format] Watching " + watcher.getDirectories() + " directories for changes");
+            watcher.run();
+        } catch (final IOException ex) {
+            throw new MojoExecutionException("[xml-format] Unable to watch " + getBaseDirectory(), ex);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            releaseThreadResources();
+        }
+    }
+
+    void setWatchDebounce(final long watchDebounce) {
+        this.watchDebounce = watchDebounce;
+    }
+
+    private boolean included(final File file) {
+        try {
+            return isIncluded(file);
+        } catch (final MojoExecutionException ex) {
+            getLog().warn("[xml-format] Unable to check " + file, ex);
+            return false;
+        }
+    }
+
+    private void format(final File file, final XmlOutputFormat fmt) {
+        final long start = System.nanoTime();
+        try {
+            final boolean changed = formatInPlace(file, fmt);
+            getLog().info("[xml-format] " + (changed ? "Formatted" : "Unchanged") + ": " + file + " ("
+                    + BuildReport.millis(System.nanoTime() - start) + " ms)");
+        } catch (final DocumentException | IOException ex) {
+            getLog().error("[xml-format] Error for " + file, ex);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.StringTokenizer;
+
+import org.dom4j.Node;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link BlankLinesWriter}.
+ */
+public class BlankLinesWriterTest {
+
+    private static final char[] ALPHABET = {'a', 'b', ' ', ' ', '\t', '\n', '\n', '\r', '\f', '\u000B', '&'};
+
+    @Test
+    void writeTrimmedDoesNotAllocate() throws IOException {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            text.append("  word ").append(i).append(i % 10 == 0 ? "\n\n\n" : "\n\t");
+        }
+        final String input = text.toString();
+        final Writer discard = new DiscardingWriter();
+
+        final int iterations = 10_000;
+        for (int i = 0; i < iterations; i++) {
+            BlankLinesWriter.writeTrimmed(discard, input, Node.ELEMENT_NODE);
+        }
+
+        final long threadId = Thread.currentThread().getId();
+        final long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            BlankLinesWriter.writeTrimmed(discard, input, Node.ELEMENT_NODE);
+        }
+        final long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        // Two million tokens: anything allocated per token would be far above this
+        assertThat(allocated, lessThan(64L * 1024));
+    }
+
+    @Test
+    void writeTrimmedKeepsOneBlankLine() throws IOException {
+        assertTrimmed("  one  two \n\n\n three \n\n", Node.ELEMENT_NODE, "one two\n three \n");
+        assertTrimmed("one", Node.TEXT_NODE, " one");
+        assertTrimmed("\n\n", Node.ELEMENT_NODE, "\n");
+        assertTrimmed("", Node.ELEMENT_NODE, "");
+    }
+
+    @Test
+    void writeTrimmedMatchesTokenizer() throws IOException {
+        final Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            final char[] chars = new char[random.nextInt(24)];
+            for (int c = 0; c < chars.length; c++) {
+                chars[c] = ALPHABET[random.nextInt(ALPHABET.length)];
+            }
+            final String input = new String(chars);
+            final int lastType = random.nextBoolean() ? Node.TEXT_NODE : Node.ELEMENT_NODE;
+
+            final StringWriter expected = new StringWriter();
+            final int expectedType = tokenizerWriteTrimmed(expected, input, lastType);
+            final StringWriter received = new StringWriter();
+            final int receivedType = BlankLinesWriter.writeTrimmed(received, input, lastType);
+
+            assertThat(input, received.toString(), is(expected.toString()));
+            assertThat(input, receivedType, is(expectedType));
+        }
+    }
+
+    private static void assertTrimmed(final String input, final int lastType, final String expected)
+            throws IOException {
+        final StringWriter out = new StringWriter();
+        BlankLinesWriter.writeTrimmed(out, input, lastType);
+        assertThat(out.toString(), is(expected));
+    }
+
+    /**
+     * The original {@link StringTokenizer} based implementation, kept as the reference for the expected output.
+     */
+    private static int tokenizerWriteTrimmed(final Writer writer, final String input, final int lastOutputNodeType)
+            throws IOException {
+        int lastType = lastOutputNodeType;
+        boolean first = true;
+        int newLinesCount = 0;
+        final StringTokenizer tokenizer = new StringTokenizer(input, " \t\r\f");
+        while (tokenizer.hasMoreTokens()) {
+            final String token = tokenizer.nextToken();
+            final int tokenNewLines = token.length() - token.replace("\n", "").length();
+            if (tokenNewLines > 0) {
+                newLinesCount += tokenNewLines;
+                if (tokenizer.hasMoreTokens()) {
+                    continue;
+                }
+            } else if (newLinesCount > 1) {
+                writer.write("\n");
+                newLinesCount = 0;
+            }
+            if (first) {
+                first = false;
+                if (lastType == Node.TEXT_NODE) {
+                    writer.write(" ");
+                }
+            } else {
+                writer.write(" ");
+            }
+            writer.write(token.trim());
+            lastType = Node.TEXT_NODE;
+        }
+        if (newLinesCount > 1) {
+            writer.write("\n");
+        }
+        return lastType;
+    }
+
+    /**
+     * Writer discarding everything, without the copies {@link Writer} makes by default.
+     */
+    private static final class DiscardingWriter extends Writer {
+        @Override
+        public void close() {
+            // Nothing to release
+        }
+
+        @Override
+        public void flush() {
+            // Nothing is buffered
+        }
+
+        @Override
+        public void write(final char[] cbuf, final int off, final int len) {
+            // Discarded
+        }
+
+        @Override
+        public void write(final int c) {
+            // Discarded
+        }
+
+        @Override
+        public void write(final String str, final int off, final int len) {
+            // Discarded
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import au.com.acegi.xmlformat.BuildReport.Entry;
+import au.com.acegi.xmlformat.BuildReport.Outcome;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests {@link BuildReport}.
+ */
+public class BuildReportTest {
+
+    @TempDir
+    private File tmp;
+
+    @Test
+    void emptyReport() {
+        final BuildReport report = new BuildReport();
+        assertThat(report.getFiles(), is(0));
+        assertThat(report.getPercentile(95), is(0L));
+        assertThat(report.getSlowest(BuildReport.SLOWEST).isEmpty(), is(true));
+        assertThat(report.summary(), containsString("Processed 0 files (0 bytes)"));
+    }
+
+    @Test
+    void percentilesUseNearestRank() {
+        final BuildReport report = new BuildReport();
+        for (int i = 1; i <= 20; i++) {
+            report.add(entry("f" + i + ".xml", i * 1_000_000L));
+        }
+        assertThat(report.getFiles(), is(20));
+        assertThat(report.getBytes(), is(200L));
+        assertThat(report.getPercentile(50), is(10_000_000L));
+        assertThat(report.getPercentile(95), is(19_000_000L));
+        assertThat(report.getPercentile(100), is(20_000_000L));
+        assertThat(report.getNanos(Phase.PARSE), is(20L));
+
+        final List<Entry> slowest = report.getSlowest(3);
+        assertThat(slowest.size(), is(3));
+        assertThat(slowest.get(0).getPath(), is("f20.xml"));
+        assertThat(slowest.get(2).getPath(), is("f18.xml"));
+        assertThat(report.summary(), containsString("p50 10.0 ms, p95 19.0 ms, max 20.0 ms"));
+    }
+
+    @Test
+    void writesCsv() throws IOException {
+        final BuildReport report = new BuildReport();
+        report.add(entry("a,b.xml", 5));
+        final File file = new File(tmp, "report.csv");
+        report.write(file);
+
+        final List<String> lines = Files.readAllLines(file.toPath(), UTF_8);
+        assertThat(lines.size(), is(2));
+        assertThat(lines.get(0), is("file,bytes,outcome,nanos,read_nanos,verify_nanos,parse_nanos,serialize_nanos,"
+                + "compare_nanos,write_nanos"));
+        assertThat(lines.get(1), is("\"a,b.xml\",10,formatted,5,0,0,1,0,0,0"));
+    }
+
+    @Test
+    void writesJson() throws IOException {
+        final BuildReport report = new BuildReport();
+        report.setDiscoveryNanos(3);
+        report.setWallNanos(42);
+        report.add(entry("dir\\\"quoted\".xml", 7));
+        final File file = new File(tmp, "nested/report.json");
+        report.write(file);
+
+        final String json = new String(Files.readAllBytes(file.toPath()), UTF_8);
+        assertThat(json, containsString("\"files\": 1,"));
+        assertThat(json, containsString("\"wallNanos\": 42,"));
+        assertThat(json, containsString("\"discoveryNanos\": 3,"));
+        assertThat(json, containsString("\"latencyNanos\": {\"p50\": 7, \"p95\": 7, \"max\": 7}"));
+        assertThat(json, containsString("{\"file\": \"dir\\\\\\\"quoted\\\".xml\", \"bytes\": 10, "
+                + "\"outcome\": \"formatted\", \"nanos\": 7, \"phaseNanos\": {\"read\": 0, \"verify\": 0, "
+                + "\"parse\": 1, \"serialize\": 0, \"compare\": 0, \"write\": 0}}"));
+    }
+
+    private static Entry entry(final String path, final long nanos) {
+        return new Entry(path, 10, Outcome.FORMATTED, nanos, Collections.singletonMap(Phase.PARSE, 1L));
+    }
+}
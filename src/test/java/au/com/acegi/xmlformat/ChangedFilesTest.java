@@ -0,0 +1,147 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import static au.com.acegi.xmlformat.TestUtil.stringToFile;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests {@link ChangedFiles}.
+ */
+public class ChangedFilesTest {
+
+    private static final String MODULE = "module";
+
+    @TempDir
+    private File tmp;
+
+    private Git git;
+
+    @BeforeEach
+    void before() throws GitAPIException, IOException {
+        git = Git.init().setDirectory(tmp).setInitialBranch("main").call();
+        write("root.xml", "module/a.xml", "module/b.xml", "module/sub/c.xml", ".gitignore");
+        stringToFile("ignored.xml\n", new File(tmp, ".gitignore"));
+        commit("Initial");
+    }
+
+    @Test
+    void changedSinceRevision() throws GitAPIException, IOException {
+        git.checkout().setCreateBranch(true).setName("feature").call();
+        write("module/a.xml");
+        commit("Change a");
+        // Changes made on main after the branch was created are not the feature's
+        git.checkout().setName("main").call();
+        write("module/b.xml");
+        commit("Change b");
+        git.checkout().setName("feature").call();
+
+        write("module/sub/c.xml", "module/new.xml", "module/ignored.xml", "root.xml");
+        assertThat(find(MODULE, "main"), is(sorted("a.xml", "new.xml", "sub" + File.separator + "c.xml")));
+        assertThat(find("", "main").size(), is(4));
+        assertThat(find(MODULE, "HEAD"), is(sorted("new.xml", "sub" + File.separator + "c.xml")));
+    }
+
+    @Test
+    void deletedFilesSkipped() throws GitAPIException, IOException {
+        assertThat(new File(tmp, "module/a.xml").delete(), is(true));
+        assertThat(find(MODULE, "HEAD"), is(Collections.<String>emptyList()));
+    }
+
+    @Test
+    void ignoredDirectoriesSkipped() throws IOException {
+        stringToFile("ignored.xml\ntarget/\n", new File(tmp, ".gitignore"));
+        for (int i = 0; i < 500; i++) {
+            write("target/classes/generated" + i + ".xml");
+        }
+        // Git never looks inside an ignored directory, so its files cannot be included again
+        stringToFile("!*.xml\n", new File(tmp, "target/.gitignore"));
+        write("target/untracked.xml", "module/new.xml");
+        final List<String> walked = new ArrayList<>();
+        final List<String> changed = ChangedFiles.find(tmp, "HEAD", walked::add);
+        Collections.sort(changed);
+        assertThat(changed, is(sorted(".gitignore", MODULE + File.separator + "new.xml")));
+        assertThat(walked.contains("target"), is(true));
+        assertThat(walked.contains("target/untracked.xml"), is(false));
+        assertThat(walked.size() < 20, is(true));
+
+        walked.clear();
+        assertThat(ChangedFiles.find(tmp, ChangedFiles.STAGED, walked::add), is(Collections.<String>emptyList()));
+        assertThat(walked.size() < 20, is(true));
+    }
+
+    @Test
+    void notInRepository(@TempDir final File other) {
+        assertThrows(IOException.class, () -> ChangedFiles.find(other, "HEAD"));
+    }
+
+    @Test
+    void staged() throws GitAPIException, IOException {
+        write("module/a.xml", "module/b.xml", "module/new.xml");
+        git.add().addFilepattern("module/a.xml").addFilepattern("module/new.xml").call();
+        assertThat(find(MODULE, ChangedFiles.STAGED), is(sorted("a.xml", "new.xml")));
+    }
+
+    @Test
+    void unknownRevision() {
+        assertThrows(IOException.class, () -> find(MODULE, "no-such-branch"));
+    }
+
+    private void commit(final String message) throws GitAPIException {
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage(message).setSign(false).call();
+    }
+
+    private List<String> find(final String dir, final String changedSince) throws IOException {
+        final List<String> changed = ChangedFiles.find(new File(tmp, dir), changedSince);
+        Collections.sort(changed);
+        return changed;
+    }
+
+    private static List<String> sorted(final String... paths) {
+        Arrays.sort(paths);
+        return Arrays.asList(paths);
+    }
+
+    private void write(final String... paths) throws IOException {
+        for (final String path : paths) {
+            final File file = new File(tmp, path);
+            if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+                throw new IOException("Cannot create " + file.getParent());
+            }
+            // Different length, so a change is seen even within the file system timestamp resolution
+            final String previous = file.exists() ? TestUtil.fileToString(file) : "";
+            stringToFile(previous + "<xml/>", file);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import au.com.acegi.xmlformat.ComparingOutputStream.Difference;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link ComparingOutputStream}.
+ */
+public class ComparingOutputStreamTest {
+
+    @Test
+    void expectedLonger() throws IOException {
+        final ComparingOutputStream out = comparing("<a/>\n");
+        out.write("<a/>".getBytes(UTF_8));
+        assertDifference(out.finish(), 4, 1, 5);
+    }
+
+    @Test
+    void identical() throws IOException {
+        final ComparingOutputStream out = comparing("<a>\n  <b/>\n</a>\n");
+        out.write("<a>\n  <b/>".getBytes(UTF_8));
+        out.write('\n');
+        out.write("</a>\n".getBytes(UTF_8));
+        assertThat(out.finish(), nullValue());
+    }
+
+    @Test
+    void mismatchReportsLineAndColumn() throws IOException {
+        final ComparingOutputStream out = comparing("<a>\r\néé <b/>\n</a>");
+        assertThrows(IOException.class, () -> out.write("<a>\r\néé<b/>\n</a>".getBytes(UTF_8)));
+        assertDifference(out.getDifference(), 9, 2, 3);
+        assertThrows(IOException.class, () -> out.write('x'));
+        assertDifference(out.finish(), 9, 2, 3);
+    }
+
+    @Test
+    void writtenLonger() throws IOException {
+        final ComparingOutputStream out = comparing("<a/>");
+        out.write("<a/>".getBytes(UTF_8));
+        assertThrows(IOException.class, () -> out.write('\n'));
+        assertDifference(out.getDifference(), 4, 1, 5);
+    }
+
+    private static void assertDifference(final Difference difference, final long offset, final long line,
+            final long column) {
+        assertThat(difference.getOffset(), is(offset));
+        assertThat(difference.getLine(), is(line));
+        assertThat(difference.getColumn(), is(column));
+    }
+
+    private static ComparingOutputStream comparing(final String expected) {
+        return new ComparingOutputStream(new ByteArrayInputStream(expected.getBytes(UTF_8)), "UTF-8");
+    }
+}
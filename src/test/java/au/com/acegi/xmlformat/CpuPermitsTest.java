@@ -0,0 +1,73 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link CpuPermits}.
+ */
+public class CpuPermitsTest {
+
+    @Test
+    void resourcesAreReused() throws IOException {
+        final CpuPermits permits = new CpuPermits(1);
+        final FormatUtil.Resources first;
+        try (CpuPermits.Permit permit = permits.acquire()) {
+            assertThat(permits.available(), is(0));
+            first = permit.getResources();
+        }
+        assertThat(permits.available(), is(1));
+        try (CpuPermits.Permit permit = permits.acquire()) {
+            assertThat(permit.getResources(), sameInstance(first));
+        }
+    }
+
+    @Test
+    void resourcesInUseAfterReleasingTheProcessorAreNotShared() throws IOException {
+        final CpuPermits permits = new CpuPermits(1);
+        final FormatUtil.Resources first;
+        final FormatUtil.Resources second;
+        try (CpuPermits.Permit writing = permits.acquire()) {
+            writing.releaseProcessor();
+            writing.releaseProcessor();
+            assertThat(permits.available(), is(1));
+            first = writing.getResources();
+            try (CpuPermits.Permit formatting = permits.acquire()) {
+                second = formatting.getResources();
+                assertThat(second, not(sameInstance(first)));
+            }
+        }
+        assertThat(permits.available(), is(1));
+
+        // Only as many as permits are kept
+        try (CpuPermits.Permit permit = permits.acquire()) {
+            assertThat(permit.getResources(), sameInstance(second));
+        }
+        try (CpuPermits.Permit permit = permits.acquire()) {
+            assertThat(permit.getResources(), sameInstance(second));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import static au.com.acegi.xmlformat.TestUtil.stringToFile;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests {@link FileDurations}.
+ */
+public class FileDurationsTest {
+
+    @TempDir
+    private File tmp;
+
+    @Test
+    void corruptIndexIsIgnored() throws IOException {
+        stringToFile("a.xml=not,a,duration\nb.xml=100,x\n", new File(tmp, "durations.properties"));
+        final FileDurations durations = FileDurations.load(tmp);
+        assertThat(durations.estimate("a.xml", 10), is(10L));
+        assertThat(durations.estimate("b.xml", 20), is(20L));
+    }
+
+    @Test
+    void estimatesFromRecordedDurations() throws IOException {
+        final FileDurations first = FileDurations.load(tmp);
+        assertThat(first.estimate("slow.xml", 100), is(100L));
+        first.record("slow.xml", 100, 5_000);
+        first.record("fast.xml", 300, 1_000);
+        first.save();
+
+        final FileDurations second = FileDurations.load(tmp);
+        assertThat(second.estimate("slow.xml", 100), is(5_000L));
+        assertThat(second.estimate("fast.xml", 300), is(1_000L));
+        // 6,000 ns for 400 bytes
+        assertThat(second.estimate("new.xml", 200), is(3_000L));
+    }
+
+    @Test
+    void keepsOnlyEstimatedFiles() throws IOException {
+        final FileDurations first = FileDurations.load(tmp);
+        first.record("kept.xml", 100, 5_000);
+        first.record("deleted.xml", 100, 7_000);
+        first.save();
+
+        final FileDurations second = FileDurations.load(tmp);
+        assertThat(second.estimate("kept.xml", 100), is(5_000L));
+        second.record("other.xml", 100, 1_000);
+        second.save();
+
+        final FileDurations third = FileDurations.load(tmp);
+        assertThat(third.estimate("kept.xml", 100), is(5_000L));
+        assertThat(third.estimate("other.xml", 100), is(1_000L));
+        // Now estimated from the average of the two recorded files
+        assertThat(third.estimate("deleted.xml", 100), is(3_000L));
+    }
+}
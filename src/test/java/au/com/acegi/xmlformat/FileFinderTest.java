@@ -0,0 +1,145 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import static au.com.acegi.xmlformat.TestUtil.stringToFile;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests {@link FileFinder}.
+ */
+public class FileFinderTest {
+
+    private static final String[][] PATTERNS = {
+        {"**/*.xml"},
+        {"**/*.xml", "**/node_modules/**", "target/**"},
+        {"**/*.xml", "a/**"},
+        {"a/**/*.xml", "**/b/**"},
+        {"*.xml", "**/excluded.xml"},
+        {"**/b/*.xml", "a/"},
+    };
+
+    @TempDir
+    private File tmp;
+
+    @BeforeEach
+    void before() throws IOException {
+        FileFinder.clearCache();
+        for (final String path : new String[] {"root.xml", "root.txt", "excluded.xml", "a/one.xml", "a/b/two.xml",
+            "a/b/c/three.xml", "a/b/c/notes.txt", "b/four.xml", "node_modules/pkg/five.xml", "target/six.xml",
+            "web/node_modules/seven.xml", "web/excluded.xml"}) {
+            final File file = new File(tmp, path);
+            Files.createDirectories(file.getParentFile().toPath());
+            stringToFile("<xml/>", file);
+        }
+    }
+
+    @Test
+    void candidatesFiltered() {
+        final String sep = File.separator;
+        final FileFinder finder = finder(tmp, "**/*.xml", "**/node_modules/**");
+        finder.setCandidates(Arrays.asList("root.xml", "root.txt", "missing.xml", "a" + sep + "one.xml",
+                "node_modules" + sep + "pkg" + sep + "five.xml"));
+        finder.scan();
+        assertThat(Arrays.asList(finder.getIncludedFiles()), is(Arrays.asList("a" + sep + "one.xml", "root.xml")));
+    }
+
+    @Test
+    void gitIgnoredFilesSkipped() throws IOException {
+        Files.createDirectories(new File(tmp, ".git/info").toPath());
+        stringToFile("<xml/>", new File(tmp, ".git/config.xml"));
+        stringToFile("node_modules/\n*.txt\n!/root.txt\n", new File(tmp, ".gitignore"));
+        stringToFile("excluded.xml\n", new File(tmp, ".git/info/exclude"));
+        stringToFile("c/\n", new File(tmp, "a/b/.gitignore"));
+
+        final FileFinder finder = finder(tmp, "**/*", "");
+        finder.setUseGitIgnore(true);
+        finder.scan();
+        assertThat(Arrays.asList(finder.getIncludedFiles()), is(Arrays.asList(".gitignore", "a" + File.separator
+                + "b" + File.separator + ".gitignore", "a" + File.separator + "b" + File.separator + "two.xml", "a"
+                + File.separator + "one.xml", "b" + File.separator + "four.xml", "root.txt", "root.xml", "target"
+                + File.separator + "six.xml")));
+
+        // Rules of the parent directories apply to a module of the repository
+        final FileFinder module = finder(new File(tmp, "web"), "**/*.xml", "");
+        module.setUseGitIgnore(true);
+        module.scan();
+        assertThat(Arrays.asList(module.getIncludedFiles()), is(Arrays.asList(new String[0])));
+    }
+
+    @Test
+    void matchesDirectoryScanner() {
+        for (final String[] patterns : PATTERNS) {
+            final String include = patterns[0];
+            final String exclude = patterns.length > 1 ? String.join(",", Arrays.copyOfRange(patterns, 1,
+                    patterns.length)) : "";
+            final String[] expected = scanWithDirectoryScanner(include, exclude);
+            for (final int parallelism : new int[] {1, 4}) {
+                final FileFinder finder = finder(tmp, include, exclude);
+                finder.setParallelism(parallelism);
+                finder.scan();
+                assertThat(Arrays.toString(patterns), Arrays.asList(finder.getIncludedFiles()),
+                        is(Arrays.asList(expected)));
+            }
+        }
+    }
+
+    @Test
+    void reusesListingsUntilModified() throws IOException {
+        final File dir = new File(tmp, "b");
+        assertThat(dir.setLastModified(System.currentTimeMillis() - 60_000L), is(true));
+
+        final FileFinder first = finder(tmp, "b/*.xml", "");
+        first.scan();
+        assertThat(first.getIncludedFiles().length, is(1));
+
+        stringToFile("<xml/>", new File(dir, "added.xml"));
+        final FileFinder second = finder(tmp, "b/*.xml", "");
+        second.scan();
+        assertThat(second.getIncludedFiles().length, is(2));
+    }
+
+    private static FileFinder finder(final File base, final String include, final String exclude) {
+        final FileFinder finder = new FileFinder(base);
+        finder.setIncludes(include.split(","));
+        finder.setExcludes(exclude.isEmpty() ? new String[0] : exclude.split(","));
+        return finder;
+    }
+
+    private String[] scanWithDirectoryScanner(final String include, final String exclude) {
+        final DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir(tmp);
+        scanner.setIncludes(include.split(","));
+        scanner.setExcludes(exclude.isEmpty() ? new String[0] : exclude.split(","));
+        scanner.scan();
+        final String[] files = scanner.getIncludedFiles();
+        Arrays.sort(files);
+        return files;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import static au.com.acegi.xmlformat.TestUtil.fileToString;
+import static au.com.acegi.xmlformat.TestUtil.stringToFile;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests {@link FileWatcher}.
+ */
+public class FileWatcherTest {
+
+    private static final long DEBOUNCE_MILLIS = 50;
+    private static final long QUIET_MILLIS = 500;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private final BlockingQueue<File> reported = new LinkedBlockingQueue<>();
+
+    @TempDir
+    private File tmp;
+
+    @Test
+    void debouncesBursts() throws Exception {
+        final File file = new File(tmp, "a.xml");
+        stringToFile("<a/>", file);
+        try (Watch watch = new Watch(reported::add)) {
+            for (int i = 0; i < 5; i++) {
+                stringToFile("<a>" + i + "</a>", file);
+            }
+            assertThat(reported.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS), is(file));
+            assertThat(reported.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS), is((File) null));
+        }
+    }
+
+    @Test
+    void ignoresOwnWrites() throws Exception {
+        final File file = new File(tmp, "a.xml");
+        stringToFile("<a/>", file);
+        try (Watch watch = new Watch(changed -> {
+            reported.add(changed);
+            stringToFile("formatted", changed);
+        })) {
+            stringToFile("<a> </a>", file);
+            assertThat(reported.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS), is(file));
+            assertThat(reported.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS), is((File) null));
+            assertThat(fileToString(file), is("formatted"));
+
+            stringToFile("<b/>", file);
+            assertThat(reported.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS), is(file));
+        }
+    }
+
+    @Test
+    void watchesNewDirectories() throws Exception {
+        final File skipped = new File(tmp, "target");
+        assertThat(skipped.mkdir(), is(true));
+        try (Watch watch = new Watch(reported::add)) {
+            assertThat(watch.watcher.getDirectories(), is(1));
+            stringToFile("<a/>", new File(skipped, "a.xml"));
+            stringToFile("text", new File(tmp, "a.txt"));
+
+            final File dir = new File(tmp, "dir");
+            assertThat(dir.mkdir(), is(true));
+            final File file = new File(dir, "b.xml");
+            stringToFile("<b/>", file);
+            assertThat(reported.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS), is(file));
+            assertThat(reported.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS), is((File) null));
+        }
+    }
+
+    /**
+     * A watcher running on its own thread.
+     */
+    private final class Watch implements AutoCloseable {
+        private final Thread thread;
+        private final FileWatcher watcher;
+
+        Watch(final Listener listener) throws IOException {
+            final Consumer<File> consumer = file -> {
+                try {
+                    listener.changed(file);
+                } catch (final IOException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            };
+            watcher = new FileWatcher(tmp, DEBOUNCE_MILLIS, dir -> "target".equals(dir.getName()),
+                    file -> file.getName().endsWith(".xml"), consumer);
+            thread = new Thread(() -> {
+                try {
+                    watcher.run();
+                } catch (final InterruptedException | IOException ex) {
+                    // Stopped by the test
+                }
+            });
+            thread.start();
+        }
+
+        @Override
+        public void close() throws IOException, InterruptedException {
+            watcher.close();
+            thread.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+            assertThat(thread.isAlive(), is(false));
+        }
+    }
+
+    /**
+     * Receives changed files.
+     */
+    @FunctionalInterface
+    private interface Listener {
+        void changed(File file) throws IOException;
+    }
+}
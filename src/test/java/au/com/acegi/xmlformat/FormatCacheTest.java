@@ -0,0 +1,112 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import static au.com.acegi.xmlformat.TestUtil.stringToFile;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests {@link FormatCache}.
+ */
+public class FormatCacheTest {
+
+    private static final String FORMATTED_XML = "<xml><hello/></xml>";
+    private static final String NAME = "my.xml";
+
+    @TempDir
+    private File tmp;
+
+    private File cacheDir;
+    private File file;
+    private XmlOutputFormat fmt;
+
+    @BeforeEach
+    void before() throws IOException {
+        cacheDir = new File(tmp, "cache");
+        file = new File(tmp, NAME);
+        stringToFile(FORMATTED_XML, file);
+        fmt = new XmlOutputFormat();
+
+        final FormatCache cache = FormatCache.load(cacheDir, tmp, fmt);
+        assertThat(cache.isFormatted(NAME, file), is(false));
+        cache.recordFormatted(NAME, file);
+        cache.save();
+    }
+
+    @Test
+    void changedContentIsNotCached() throws IOException {
+        stringToFile("<xml><hello/><world/></xml>", file);
+        assertThat(FormatCache.load(cacheDir, tmp, fmt).isFormatted(NAME, file), is(false));
+    }
+
+    @Test
+    void changedFormatIsNotCached() throws IOException {
+        fmt.setIndentSize(7);
+        assertThat(FormatCache.load(cacheDir, tmp, fmt).isFormatted(NAME, file), is(false));
+    }
+
+    @Test
+    void touchedFileWithSameContentIsCached() throws IOException {
+        assertThat(file.setLastModified(file.lastModified() - 10_000L), is(true));
+        assertThat(FormatCache.load(cacheDir, tmp, fmt).isFormatted(NAME, file), is(true));
+    }
+
+    @Test
+    void unchangedFileIsCached() throws IOException {
+        assertThat(FormatCache.load(cacheDir, tmp, fmt).isFormatted(NAME, file), is(true));
+    }
+
+    @Test
+    void checkedFilesNotRecordedAreDropped() throws IOException {
+        stringToFile("<xml><hello/><world/></xml>", file);
+        final FormatCache cache = FormatCache.load(cacheDir, tmp, fmt);
+        assertThat(cache.isFormatted(NAME, file), is(false));
+        cache.save();
+        stringToFile(FORMATTED_XML, file);
+        assertThat(file.setLastModified(file.lastModified() - 10_000L), is(true));
+        assertThat(FormatCache.load(cacheDir, tmp, fmt).isFormatted(NAME, file), is(false));
+    }
+
+    @Test
+    void deletedFilesAreDropped() throws IOException {
+        final FormatCache cache = FormatCache.load(cacheDir, tmp, fmt);
+        assertThat(file.delete(), is(true));
+        cache.save();
+        stringToFile(FORMATTED_XML, file);
+        assertThat(file.setLastModified(file.lastModified() - 10_000L), is(true));
+        assertThat(FormatCache.load(cacheDir, tmp, fmt).isFormatted(NAME, file), is(false));
+    }
+
+    @Test
+    void uncheckedFilesAreKept() throws IOException {
+        final File other = new File(tmp, "other.xml");
+        stringToFile(FORMATTED_XML, other);
+        final FormatCache cache = FormatCache.load(cacheDir, tmp, fmt);
+        cache.recordFormatted("other.xml", other);
+        cache.save();
+        assertThat(FormatCache.load(cacheDir, tmp, fmt).isFormatted(NAME, file), is(true));
+    }
+}
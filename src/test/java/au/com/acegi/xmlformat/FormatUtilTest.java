@@ -19,8 +19,11 @@ package au.com.acegi.xmlformat;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+import static au.com.acegi.xmlformat.FormatUtil.findDifference;
 import static au.com.acegi.xmlformat.FormatUtil.format;
 import static au.com.acegi.xmlformat.FormatUtil.formatInPlace;
+import static au.com.acegi.xmlformat.FormatUtil.needsFormatting;
+import static au.com.acegi.xmlformat.TestUtil.fileToString;
 import static au.com.acegi.xmlformat.TestUtil.getResource;
 import static au.com.acegi.xmlformat.TestUtil.streamToString;
 import static au.com.acegi.xmlformat.TestUtil.stringToFile;
@@ -48,7 +51,122 @@ public class FormatUtilTest {
 
     @Test
     void formattedWillNotChange() throws DocumentException, IOException {
-        inPlaceChange(FORMATTED_XML, false);
+        inPlaceChange(FORMATTED_XML, false, XmlOutputFormat.DEFAULT_IN_MEMORY_THRESHOLD);
+    }
+
+    @Test
+    void formattedWillNotChangeStreaming() throws DocumentException, IOException {
+        inPlaceChange(FORMATTED_XML, false, 0);
+    }
+
+    @Test
+    void hugeDocumentsAreStreamed() {
+        final XmlOutputFormat fmt = new XmlOutputFormat();
+        assertThat(FormatUtil.engineFor(1024, fmt), is(FormatEngine.DOM));
+        assertThat(FormatUtil.engineFor(Runtime.getRuntime().maxMemory(), fmt), is(FormatEngine.STREAMING));
+        assertThat(FormatUtil.engineFor(Long.MAX_VALUE, fmt), is(FormatEngine.STREAMING));
+        fmt.setEngine(FormatEngine.STREAMING);
+        assertThat(FormatUtil.engineFor(1024, fmt), is(FormatEngine.STREAMING));
+    }
+
+    @Test
+    void writerIsReused() throws DocumentException, IOException {
+        final XmlOutputFormat fmt = new XmlOutputFormat();
+        fmt.setIndentSize(2);
+        fmt.setNewLineAfterDeclaration(false);
+        fmt.setPadText(false);
+
+        final File formatted = File.createTempFile("junit", null, tmp);
+        for (final int id : new int[] {2, 3, 2}) {
+            stringToFile(streamToString(getResource("/test" + id + "-in.xml")), formatted);
+            assertThat(formatInPlace(formatted, fmt), is(true));
+            assertThat(fileToString(formatted), is(streamToString(getResource("/test" + id + "-out.xml"))));
+            assertThat(formatInPlace(formatted, fmt), is(false));
+        }
+
+        // Changing how the writer is created must not reuse the previous one
+        fmt.setKeepBlankLines(true);
+        stringToFile(streamToString(getResource("/test2-in.xml")), formatted);
+        assertThat(formatInPlace(formatted, fmt), is(true));
+        assertThat(fileToString(formatted), is(streamToString(getResource("/test2-out-kbl.xml"))));
+
+        // A thread that forgot its writer creates a new one, and forgot the phase times of its files too
+        assertThat(fmt.getStatistics().getFileNanos() > 0, is(true));
+        FormatUtil.releaseThreadResources();
+        assertThat(fmt.getStatistics().getFileNanos(), is(0L));
+        stringToFile(streamToString(getResource("/test2-in.xml")), formatted);
+        assertThat(formatInPlace(formatted, fmt), is(true));
+        assertThat(fileToString(formatted), is(streamToString(getResource("/test2-out-kbl.xml"))));
+    }
+
+    @Test
+    void cpuPermitsAreReleased() throws DocumentException, IOException {
+        final CpuPermits cpuPermits = new CpuPermits(1);
+        final XmlOutputFormat fmt = compactFormat(XmlOutputFormat.DEFAULT_IN_MEMORY_THRESHOLD);
+        fmt.setCpuPermits(cpuPermits);
+        fmt.setPadText(false);
+
+        final File file = File.createTempFile("junit", null, tmp);
+        stringToFile(UNFORMATTED_XML, file);
+        assertThat(formatInPlace(file, fmt), is(true));
+        assertThat(fileToString(file), is(FORMATTED_XML));
+        assertThat(cpuPermits.available(), is(1));
+
+        stringToFile("<xml>", file);
+        assertThrows(DocumentException.class, () -> formatInPlace(file, fmt));
+        assertThat(cpuPermits.available(), is(1));
+    }
+
+    @Test
+    void lineEndingsAreFixedWithoutFormatting() throws DocumentException, IOException {
+        final String formatted = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n\n<a>\n  <!-- two\nlines -->\n"
+                + "  <b c=\"d\">text</b>\n</a>\n";
+        final XmlOutputFormat fmt = new XmlOutputFormat();
+        fmt.setNewLineAfterDeclaration(true);
+        fmt.setPadText(false);
+
+        final File file = File.createTempFile("junit", null, tmp);
+        stringToFile(formatted.replace("\n", "\r\n"), file);
+        final ComparingOutputStream.Difference difference = findDifference(file, fmt);
+        assertThat(difference.getOffset(), is(38L));
+        assertThat(difference.getLine(), is(1L));
+        assertThat(formatInPlace(file, fmt), is(true));
+        assertThat(fileToString(file), is(formatted));
+        assertThat(fmt.getStatistics().getLineEndingsOnly(), is(2L));
+
+        // Other differences still go through the formatter
+        stringToFile(formatted.replace("\n", "\r\n").replace("  <b", "<b"), file);
+        assertThat(formatInPlace(file, fmt), is(true));
+        assertThat(fileToString(file), is(formatted));
+        assertThat(fmt.getStatistics().getLineEndingsOnly(), is(2L));
+    }
+
+    @Test
+    void formattedTakesFastPath() throws DocumentException, IOException {
+        for (final long inMemoryThreshold : new long[] {XmlOutputFormat.DEFAULT_IN_MEMORY_THRESHOLD, 0}) {
+            final File file = File.createTempFile("junit", null, tmp);
+            stringToFile(UNFORMATTED_XML, file);
+            final XmlOutputFormat fmt = new XmlOutputFormat();
+            fmt.setPadText(false);
+            fmt.setInMemoryThreshold(inMemoryThreshold);
+
+            assertThat(formatInPlace(file, fmt), is(true));
+            assertThat(fmt.getStatistics().getFastPath(), is(0L));
+            assertThat(formatInPlace(file, fmt), is(false));
+            assertThat(needsFormatting(file, fmt), is(false));
+            assertThat(fmt.getStatistics().getFastPath(), is(2L));
+            assertThat(fmt.getStatistics().getFiles(), is(3L));
+        }
+    }
+
+    @Test
+    void needsFormattingInMemory() throws DocumentException, IOException {
+        checkNeedsFormatting(XmlOutputFormat.DEFAULT_IN_MEMORY_THRESHOLD);
+    }
+
+    @Test
+    void needsFormattingStreaming() throws DocumentException, IOException {
+        checkNeedsFormatting(0);
     }
 
     @Test
@@ -171,20 +289,46 @@ public class FormatUtilTest {
 
     @Test
     void unformattedWillChange() throws DocumentException, IOException {
-        inPlaceChange(UNFORMATTED_XML, true);
+        inPlaceChange(UNFORMATTED_XML, true, XmlOutputFormat.DEFAULT_IN_MEMORY_THRESHOLD);
     }
 
-    private void inPlaceChange(final String txt, final boolean shouldChange) throws DocumentException, IOException {
-        final File file = File.createTempFile("junit", null, tmp);
-        stringToFile(txt, file);
+    @Test
+    void unformattedWillChangeStreaming() throws DocumentException, IOException {
+        inPlaceChange(UNFORMATTED_XML, true, 0);
+    }
+
+    private void checkNeedsFormatting(final long inMemoryThreshold) throws DocumentException, IOException {
+        final XmlOutputFormat fmt = compactFormat(inMemoryThreshold);
 
+        final File formatted = File.createTempFile("junit", null, tmp);
+        stringToFile(FORMATTED_XML, formatted);
+        assertThat(needsFormatting(formatted, fmt), is(false));
+
+        final File unformatted = File.createTempFile("junit", null, tmp);
+        stringToFile(UNFORMATTED_XML, unformatted);
+        assertThat(needsFormatting(unformatted, fmt), is(true));
+        assertThat(findDifference(unformatted, fmt).getOffset(), is(6L));
+        assertThat(fileToString(unformatted), is(UNFORMATTED_XML));
+    }
+
+    private XmlOutputFormat compactFormat(final long inMemoryThreshold) {
         final XmlOutputFormat fmt = new XmlOutputFormat();
         fmt.setSuppressDeclaration(true);
         fmt.setIndent("");
         fmt.setNewlines(false);
+        fmt.setInMemoryThreshold(inMemoryThreshold);
+        return fmt;
+    }
+
+    private void inPlaceChange(final String txt, final boolean shouldChange, final long inMemoryThreshold)
+            throws DocumentException, IOException {
+        final File file = File.createTempFile("junit", null, tmp);
+        stringToFile(txt, file);
 
+        final XmlOutputFormat fmt = compactFormat(inMemoryThreshold);
         final boolean written = formatInPlace(file, fmt);
         assertThat(written, is(shouldChange));
+        assertThat(formatInPlace(file, fmt), is(false));
     }
 
     private void testInOut(final int id, final XmlOutputFormat fmt) throws DocumentException, IOException {
@@ -0,0 +1,234 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static au.com.acegi.xmlformat.TestUtil.getResource;
+import static au.com.acegi.xmlformat.TestUtil.streamToString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.dom4j.DocumentException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link FormatVerifier} never proves a document formatted when the formatter would change it.
+ */
+public class FormatVerifierTest {
+
+    /** Documents the verifier must prove formatted once formatted, whatever the supported configuration. */
+    private static final String[] PROVABLE = {
+        "<a/>",
+        "<a></a>",
+        "<a>text</a>",
+        "<a>  padded   text  </a>",
+        "<a> <b/> </a>",
+        "<a>\n\n  <b/>\n\n\n  <c>x</c>\n\n</a>",
+        "<a><b><c><d>deep</d></c></b><b/></a>",
+        "<a b=\"&lt;&amp;&quot;'\" c='x\"'>&lt;tag&gt; &amp; \"more\" 'quotes'</a>",
+        "<a><!-- c --><b>x</b><!---->\n<!-- multi\nline --></a>",
+        "<!-- first --><a/><!-- last -->",
+        "<a><![CDATA[ <raw> & ]]></a>",
+        "<a xmlns=\"urn:a\" xmlns:p=\"urn:p\"><p:b p:x=\"1\"/><c xmlns=\"urn:c\"><d/></c></a>",
+        "<p:a xmlns:p=\"urn:p\"><p:b xmlns:p=\"urn:q\"/><p:c/></p:a>",
+        "<p:a xmlns:q=\"urn:q\" xmlns:p=\"urn:p\" q:x=\"1\" y=\"2\"><q:b/></p:a>",
+        "<a xmlns=\"urn:a\"/>",
+        "<a><b xmlns:p=\"urn:p\">x</b></a>",
+        "<a xml:lang=\"en\" b=\"1\" c=\"2\">é中 😀</a>",
+        "<project xmlns=\"http://maven.apache.org/POM/4.0.0\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\""
+                + " xsi:schemaLocation=\"http://maven.apache.org/POM/4.0.0 https://maven.apache.org/xsd/maven-4.0.0.xsd\">"
+                + "<modelVersion>4.0.0</modelVersion><dependencies><dependency><groupId>g</groupId></dependency>"
+                + "</dependencies></project>",
+    };
+
+    /** Documents the verifier may give up on, or that are malformed. */
+    private static final String[] OTHERS = {
+        "<a>before<b>inner</b>after</a>",
+        "<a> before <b> inner </b> after </a>",
+        "<a>one<!-- c -->two<?pi data?>three</a>",
+        "<a><![CDATA[ <raw> ]]> tail</a>",
+        "<a xml:space=\"preserve\">  keep   <b>  this </b>  </a>",
+        "<a xmlns=\"urn:a\"><b xmlns=\"urn:a\"/></a>",
+        "<a b=\"1\" xmlns=\"urn:a\"/>",
+        "<p:a xmlns:q=\"urn:q\" xmlns:p=\"urn:p\"/>",
+        "<?pi before?><a/>",
+        "<!DOCTYPE a [<!ENTITY e \"value\">]><a>&e; and &e;</a>",
+        "<a>&#65;&#x42;</a>",
+        "<a b=\"&#10;\"/>",
+        "<a b=\"x\ny\"/>",
+        "<a>\u0001</a>",
+        "<a><b></a>",
+        "<a b=\"1\" b=\"2\"/>",
+        "<p:a/>",
+        "<a/><b/>",
+        "<a><!-- x -- y --></a>",
+        "<a><!-- x ---></a>",
+        "<1a/>",
+        "<a>]]&gt;</a>",
+    };
+
+    private static final String[] RESOURCES = {"/test1-in.xml", "/test1-out.xml", "/test1-out-kbl.xml",
+        "/test2-in.xml", "/test2-out.xml", "/test3-in.xml", "/test3-out.xml", "/test4-in.xml", "/test4-out.xml",
+        "/test5-in.xml", "/test5-out.xml", "/test6-in.xml", "/test6-out.xml"};
+
+    private static final byte[][] MUTATIONS = {bytes(" "), bytes("\n"), bytes("\r"), bytes("\t"), bytes("\""),
+        bytes("'"), bytes(">"), bytes("<"), bytes("&"), bytes("/"), bytes("x"), bytes("-"), bytes(":"),
+        bytes("&amp;"), bytes("&quot;"), bytes("<b/>"), bytes("</a>"), bytes("\n  "), bytes("é"), {(byte) 0xC3}};
+
+    @Test
+    void provesFormattedDocuments() throws DocumentException, IOException {
+        final Random random = new Random(1);
+        for (int i = 0; i < 200; i++) {
+            final XmlOutputFormat fmt = randomFormat(random);
+            for (final String xml : PROVABLE) {
+                final byte[] formatted = format(bytes(xml), fmt);
+                assertThat(describe(fmt) + "\n" + new String(formatted, UTF_8), verify(formatted, fmt), is(true));
+            }
+        }
+    }
+
+    @Test
+    void neverProvesUnformattedDocuments() throws IOException {
+        final Random random = new Random(2);
+        for (int i = 0; i < 40; i++) {
+            final XmlOutputFormat fmt = randomFormat(random);
+            for (final String xml : concat(PROVABLE, OTHERS)) {
+                assertSound(bytes(xml), fmt);
+                final byte[] formatted;
+                try {
+                    formatted = format(bytes(xml), fmt);
+                } catch (final DocumentException ex) {
+                    continue;
+                }
+                assertSound(formatted, fmt);
+                for (int m = 0; m < 20; m++) {
+                    assertSound(mutate(formatted, random), fmt);
+                }
+            }
+        }
+    }
+
+    @Test
+    void neverProvesUnformattedResources() throws IOException {
+        final Random random = new Random(3);
+        for (final String resource : RESOURCES) {
+            final byte[] xml;
+            try (InputStream in = getResource(resource)) {
+                xml = bytes(streamToString(in));
+            }
+            for (int i = 0; i < 20; i++) {
+                final XmlOutputFormat fmt = randomFormat(random);
+                assertSound(xml, fmt);
+                assertSound(mutate(xml, random), fmt);
+            }
+        }
+    }
+
+    @Test
+    void unsupportedFormats() {
+        final XmlOutputFormat fmt = new XmlOutputFormat();
+        fmt.setPadText(false);
+        assertThat(FormatVerifier.supports(fmt), is(true));
+        fmt.setPadText(true);
+        assertThat(FormatVerifier.supports(fmt), is(false));
+        fmt.setPadText(false);
+        fmt.setEncoding("ISO-8859-1");
+        assertThat(FormatVerifier.supports(fmt), is(false));
+        fmt.setEncoding("UTF-8");
+        fmt.setTrimText(false);
+        assertThat(FormatVerifier.supports(fmt), is(false));
+        assertThat(verify(bytes("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<a/>\n"), fmt), is(false));
+    }
+
+    private static void assertSound(final byte[] xml, final XmlOutputFormat fmt) {
+        if (!verify(xml, fmt)) {
+            return;
+        }
+        final String message = describe(fmt) + "\n" + new String(xml, UTF_8);
+        try {
+            assertThat(message, new String(format(xml, fmt), UTF_8), is(new String(xml, UTF_8)));
+        } catch (final DocumentException | IOException ex) {
+            throw new AssertionError("Proven formatted but malformed: " + message, ex);
+        }
+    }
+
+    private static boolean verify(final byte[] xml, final XmlOutputFormat fmt) {
+        return FormatVerifier.isFormatted(ByteBuffer.wrap(xml), fmt);
+    }
+
+    private static byte[] format(final byte[] xml, final XmlOutputFormat fmt) throws DocumentException, IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FormatUtil.format(new ByteArrayInputStream(xml), out, fmt);
+        return out.toByteArray();
+    }
+
+    private static byte[] mutate(final byte[] xml, final Random random) {
+        final int at = random.nextInt(xml.length + 1);
+        final byte[] insert = MUTATIONS[random.nextInt(MUTATIONS.length)];
+        final int delete = random.nextInt(3) == 0 ? Math.min(1 + random.nextInt(3), xml.length - at) : 0;
+        final byte[] mutated = new byte[xml.length + insert.length - delete];
+        System.arraycopy(xml, 0, mutated, 0, at);
+        System.arraycopy(insert, 0, mutated, at, insert.length);
+        System.arraycopy(xml, at + delete, mutated, at + insert.length, xml.length - at - delete);
+        return mutated;
+    }
+
+    private static XmlOutputFormat randomFormat(final Random random) {
+        final XmlOutputFormat fmt = new XmlOutputFormat();
+        fmt.setAttributeQuoteCharacter(random.nextBoolean() ? '"' : '\'');
+        fmt.setEngine(random.nextBoolean() ? FormatEngine.DOM : FormatEngine.STREAMING);
+        fmt.setExpandEmptyElements(random.nextBoolean());
+        final String[] indents = {"", "  ", "    ", "\t"};
+        fmt.setIndent(indents[random.nextInt(indents.length)]);
+        fmt.setKeepBlankLines(random.nextBoolean());
+        final String[] separators = {"\n", "\r\n", "\r"};
+        fmt.setLineSeparator(separators[random.nextInt(separators.length)]);
+        fmt.setNewLineAfterDeclaration(random.nextInt(4) == 0);
+        fmt.setOmitEncoding(random.nextInt(4) == 0);
+        fmt.setPadText(false);
+        fmt.setSuppressDeclaration(random.nextInt(4) == 0);
+        return fmt;
+    }
+
+    private static String describe(final XmlOutputFormat fmt) {
+        return "quote=" + fmt.getAttributeQuoteCharacter() + " engine=" + fmt.getEngine() + " expandEmptyElements="
+                + fmt.isExpandEmptyElements() + " indent='" + fmt.getIndent() + "' keepBlankLines="
+                + fmt.isKeepBlankLines() + " lineSeparator=" + Arrays.toString(bytes(fmt.getLineSeparator()))
+                + " newLineAfterDeclaration=" + fmt.isNewLineAfterDeclaration() + " omitEncoding="
+                + fmt.isOmitEncoding() + " suppressDeclaration=" + fmt.isSuppressDeclaration();
+    }
+
+    private static String[] concat(final String[] first, final String[] second) {
+        final String[] all = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, all, first.length, second.length);
+        return all;
+    }
+
+    private static byte[] bytes(final String text) {
+        return text.getBytes(UTF_8);
+    }
+}
@@ -17,21 +17,33 @@
  */
 package au.com.acegi.xmlformat;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import static au.com.acegi.xmlformat.IOUtil.hash;
 import static au.com.acegi.xmlformat.TestUtil.getResource;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 /**
  * Tests {@link IOUtil}.
  */
 public class IOTest {
 
+    @TempDir
+    private File tmp;
+
     @Test
     void hash1() throws IOException {
         testHash("/test1-in.xml", 459_402_491L);
@@ -47,9 +59,63 @@ public class IOTest {
         testHash("/invalid.xml", 2_274_913_643L);
     }
 
+    @Test
+    void hashFileMatchesStream() throws IOException {
+        for (final int size : new int[] {0, 1, 4_096, (int) IOUtil.MAP_THRESHOLD - 1, (int) IOUtil.MAP_THRESHOLD,
+            (int) IOUtil.MAP_THRESHOLD * 3 + 7}) {
+            final byte[] content = random(size);
+            final File file = new File(tmp, "hash" + size);
+            Files.write(file.toPath(), content);
+            for (final ContentHash function : ContentHash.values()) {
+                assertThat(hash(file, function), is(hash(new ByteArrayInputStream(content), function)));
+                assertThat(hash(file, function), is(function.hash(ByteBuffer.wrap(content))));
+            }
+        }
+    }
+
+    @Test
+    void openReadsWholeFile() throws IOException {
+        for (final int size : new int[] {10, (int) IOUtil.MAP_THRESHOLD + 10}) {
+            final byte[] content = random(size);
+            final Path file = new File(tmp, "open" + size).toPath();
+            Files.write(file, content);
+            try (InputStream in = IOUtil.open(file)) {
+                assertThat(hash(in, ContentHash.XXHASH64),
+                        is(hash(new ByteArrayInputStream(content), ContentHash.XXHASH64)));
+            }
+        }
+    }
+
+    @Test
+    void sameContent() {
+        final byte[] content = random(1_000);
+        final byte[] copy = content.clone();
+        assertThat(IOUtil.sameContent(ByteBuffer.wrap(content), ByteBuffer.wrap(copy)), is(true));
+        assertThat(IOUtil.sameContent(ByteBuffer.wrap(content, 0, 999), ByteBuffer.wrap(copy)), is(false));
+        copy[998]++;
+        assertThat(IOUtil.sameContent(ByteBuffer.wrap(content), ByteBuffer.wrap(copy)), is(false));
+    }
+
+    @Test
+    void replace() throws IOException {
+        final Path source = new File(tmp, "source").toPath();
+        final Path target = new File(tmp, "target").toPath();
+        Files.write(source, "new".getBytes(UTF_8));
+        Files.write(target, "old content".getBytes(UTF_8));
+        IOUtil.replace(source, target);
+        assertThat(Files.exists(source), is(false));
+        assertThat(new String(Files.readAllBytes(target), UTF_8), is("new"));
+    }
+
+    private static byte[] random(final int size) {
+        final byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+
     private void testHash(final String resource, final long expected) throws IOException {
         try (InputStream in = getResource(resource)) {
-            final long hash = hash(in);
+            final long hash = hash(in, ContentHash.CRC32);
             assertThat(hash, is(expected));
         }
     }
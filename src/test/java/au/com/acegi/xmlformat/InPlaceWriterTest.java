@@ -0,0 +1,139 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import org.dom4j.DocumentException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests {@link InPlaceWriter}.
+ */
+public class InPlaceWriterTest {
+
+    private static final FileTime OLD = FileTime.fromMillis(1_000_000_000_000L);
+
+    @TempDir
+    private File tmp;
+
+    @Test
+    void atomicReplacesContent() throws DocumentException, IOException {
+        for (final boolean fsync : new boolean[] {false, true}) {
+            final File file = write("a.xml", "old content");
+            final XmlOutputFormat fmt = new XmlOutputFormat();
+            fmt.setFsync(fsync);
+            InPlaceWriter.write(file, fmt, false, out -> out.write("new".getBytes(UTF_8)));
+            assertThat(read(file.toPath()), is("new"));
+            assertThat(tmp.list().length, is(1));
+            assertThat(file.delete(), is(true));
+        }
+    }
+
+    @Test
+    void atomicKeepsPermissions() throws DocumentException, IOException {
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        final File file = write("a.xml", "old");
+        Files.setPosixFilePermissions(file.toPath(), PosixFilePermissions.fromString("rwxr-x-w-"));
+        InPlaceWriter.write(file, new XmlOutputFormat(), false, out -> out.write("new".getBytes(UTF_8)));
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(file.toPath())), is("rwxr-x-w-"));
+    }
+
+    @Test
+    void failureKeepsOriginal() throws IOException {
+        for (final WriteStrategy strategy : new WriteStrategy[] {WriteStrategy.ATOMIC, WriteStrategy.OVERWRITE}) {
+            final File file = write("a.xml", "old");
+            final XmlOutputFormat fmt = new XmlOutputFormat();
+            fmt.setWriteStrategy(strategy);
+            assertThrows(DocumentException.class, () -> InPlaceWriter.write(file, fmt, true, out -> {
+                out.write("partial".getBytes(UTF_8));
+                throw new DocumentException("broken");
+            }));
+            assertThat(read(file.toPath()), is("old"));
+            assertThat(tmp.list().length, is(1));
+        }
+    }
+
+    @Test
+    void overwriteKeepsHardLinks() throws DocumentException, IOException {
+        for (final boolean readsFile : new boolean[] {false, true}) {
+            final File file = write("a.xml", "old content");
+            final Path link = new File(tmp, "link.xml").toPath();
+            Files.createLink(link, file.toPath());
+            final XmlOutputFormat fmt = new XmlOutputFormat();
+            fmt.setWriteStrategy(WriteStrategy.OVERWRITE);
+            InPlaceWriter.write(file, fmt, readsFile, out -> out.write("new".getBytes(UTF_8)));
+            assertThat(read(link), is("new"));
+            assertThat(tmp.list().length, is(2));
+            Files.delete(link);
+        }
+    }
+
+    @Test
+    void preserveTimestamps() throws DocumentException, IOException {
+        for (final WriteStrategy strategy : new WriteStrategy[] {WriteStrategy.ATOMIC, WriteStrategy.OVERWRITE}) {
+            for (final boolean preserve : new boolean[] {false, true}) {
+                final File file = write("a.xml", "old");
+                Files.setLastModifiedTime(file.toPath(), OLD);
+                final XmlOutputFormat fmt = new XmlOutputFormat();
+                fmt.setPreserveTimestamps(preserve);
+                fmt.setWriteStrategy(strategy);
+                InPlaceWriter.write(file, fmt, false, out -> out.write("new".getBytes(UTF_8)));
+                assertThat(Files.getLastModifiedTime(file.toPath()).equals(OLD), is(preserve));
+            }
+        }
+    }
+
+    @Test
+    void symbolicLinkIsFollowed() throws DocumentException, IOException {
+        final File file = write("a.xml", "old");
+        final Path link = new File(tmp, "link.xml").toPath();
+        try {
+            Files.createSymbolicLink(link, file.toPath());
+        } catch (final UnsupportedOperationException | IOException ex) {
+            assumeTrue(false, "Symbolic links not supported");
+        }
+        InPlaceWriter.write(link.toFile(), new XmlOutputFormat(), false, out -> out.write("new".getBytes(UTF_8)));
+        assertThat(Files.isSymbolicLink(link), is(true));
+        assertThat(read(file.toPath()), is("new"));
+    }
+
+    private static String read(final Path file) throws IOException {
+        return new String(Files.readAllBytes(file), UTF_8);
+    }
+
+    private File write(final String name, final String content) throws IOException {
+        final File file = new File(tmp, name);
+        Files.write(file.toPath(), content.getBytes(UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link LineEndings}.
+ */
+public class LineEndingsTest {
+
+    @Test
+    void keepsMatchingLineEndings() {
+        assertThat(LineEndings.normalize(bytes("<a>\n<b/>\n</a>\n"), "\n"), is(nullValue()));
+        assertThat(LineEndings.normalize(bytes("<a>\r\n<b/>\r\n</a>\r\n"), "\r\n"), is(nullValue()));
+        assertThat(LineEndings.normalize(bytes("<a/>"), "\n"), is(nullValue()));
+        assertThat(LineEndings.normalize(bytes("<a>\n</a>\n"), "\t"), is(nullValue()));
+    }
+
+    @Test
+    void rewritesEveryLineEnding() {
+        assertThat(normalize("<a>\r\n<b/>\r\n</a>\r\n", "\n"), is("<a>\n<b/>\n</a>\n"));
+        assertThat(normalize("<a>\n<b/>\r\n</a>\r", "\r\n"), is("<a>\r\n<b/>\r\n</a>\r\n"));
+        assertThat(normalize("\r\r\n\n\r", "\n"), is("\n\n\n\n"));
+        assertThat(normalize("x\r\ny", "\r"), is("x\ry"));
+        assertThat(normalize("été\r\n", "\n"), is("été\n"));
+    }
+
+    private static String normalize(final String content, final String separator) {
+        return new String(LineEndings.normalize(bytes(content), separator), UTF_8);
+    }
+
+    private static byte[] bytes(final String content) {
+        return content.getBytes(UTF_8);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests {@link MappedInputStream}.
+ */
+public class MappedInputStreamTest {
+
+    @TempDir
+    private File tmp;
+
+    @Test
+    void emptyFile() throws IOException {
+        try (InputStream in = new MappedInputStream(write(new byte[0]))) {
+            assertThat(in.read(), is(-1));
+            assertThat(in.read(new byte[4], 0, 4), is(-1));
+        }
+    }
+
+    @Test
+    void readBytesAndArrays() throws IOException {
+        final byte[] content = new byte[10_000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        try (InputStream in = new MappedInputStream(write(content))) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            out.write(in.read());
+            final byte[] buff = new byte[333];
+            int read;
+            while ((read = in.read(buff, 0, buff.length)) >= 0) {
+                out.write(buff, 0, read);
+            }
+            assertThat(out.toByteArray(), is(content));
+            assertThat(in.read(), is(-1));
+        }
+    }
+
+    @Test
+    void skip() throws IOException {
+        try (InputStream in = new MappedInputStream(write(new byte[] {1, 2, 3, 4, 5}))) {
+            assertThat(in.skip(3), is(3L));
+            assertThat(in.read(), is(4));
+            assertThat(in.skip(10), is(1L));
+            assertThat(in.read(), is(-1));
+        }
+    }
+
+    private Path write(final byte[] content) throws IOException {
+        final Path file = new File(tmp, "mapped").toPath();
+        Files.write(file, content);
+        return file;
+    }
+}
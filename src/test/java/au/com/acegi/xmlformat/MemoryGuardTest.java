@@ -0,0 +1,78 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link MemoryGuard}.
+ */
+public class MemoryGuardTest {
+
+    private static final long KIB = 1024;
+
+    @Test
+    void oversizedEstimateTakesWholeBudget() throws InterruptedIOException {
+        final MemoryGuard guard = new MemoryGuard(4 * KIB);
+        assertThat(guard.fits(4 * KIB), is(true));
+        assertThat(guard.fits(4 * KIB + 1), is(false));
+        try (MemoryGuard.Permit permit = guard.acquire(Long.MAX_VALUE)) {
+            assertThat(guard.available(), is(0));
+        }
+        assertThat(guard.available(), is(4));
+    }
+
+    @Test
+    void releasesOnClose() throws InterruptedIOException {
+        final MemoryGuard guard = new MemoryGuard(4 * KIB);
+        try (MemoryGuard.Permit permit = guard.acquire(KIB + 1)) {
+            assertThat(guard.available(), is(2));
+            try (MemoryGuard.Permit other = guard.acquire(0)) {
+                assertThat(guard.available(), is(2));
+            }
+        }
+        assertThat(guard.available(), is(4));
+    }
+
+    @Test
+    void waitsForMemory() throws InterruptedException, InterruptedIOException {
+        final MemoryGuard guard = new MemoryGuard(4 * KIB);
+        final CountDownLatch admitted = new CountDownLatch(1);
+        final Thread thread;
+        try (MemoryGuard.Permit permit = guard.acquire(3 * KIB)) {
+            thread = new Thread(() -> {
+                try (MemoryGuard.Permit other = guard.acquire(2 * KIB)) {
+                    admitted.countDown();
+                } catch (final InterruptedIOException ex) {
+                    // Fails the test by not counting down
+                }
+            });
+            thread.start();
+            assertThat(admitted.await(100, TimeUnit.MILLISECONDS), is(false));
+        }
+        assertThat(admitted.await(10, TimeUnit.SECONDS), is(true));
+        thread.join();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import org.dom4j.DocumentException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link ParserContext}.
+ */
+public class ParserContextTest {
+
+    @Test
+    void nestedAcquireGetsOwnContext() {
+        final ParserContext outer = ParserContext.acquire();
+        try {
+            final ParserContext inner = ParserContext.acquire();
+            assertThat(inner, not(sameInstance(outer)));
+            inner.release();
+        } finally {
+            outer.release();
+        }
+    }
+
+    @Test
+    void forgottenContextIsReplaced() {
+        final ParserContext first = ParserContext.acquire();
+        first.release();
+        ParserContext.forget();
+
+        final ParserContext second = ParserContext.acquire();
+        try {
+            assertThat(second, not(sameInstance(first)));
+        } finally {
+            second.release();
+        }
+    }
+
+    @Test
+    void reusedAfterFailure() throws DocumentException {
+        final ParserContext first = ParserContext.acquire();
+        try {
+            assertThrows(DocumentException.class, () -> first.read(stream("<a><b></a>")));
+        } finally {
+            first.release();
+        }
+
+        final ParserContext second = ParserContext.acquire();
+        try {
+            assertThat(second, sameInstance(first));
+            assertThat(second.read(stream("<a><b/></a>")).getRootElement().getName(), is("a"));
+        } finally {
+            second.release();
+        }
+    }
+
+    private static InputStream stream(final String xml) {
+        return new ByteArrayInputStream(xml.getBytes(UTF_8));
+    }
+}
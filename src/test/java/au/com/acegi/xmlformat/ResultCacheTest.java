@@ -0,0 +1,105 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import static au.com.acegi.xmlformat.TestUtil.stringToFile;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests {@link ResultCache}.
+ */
+public class ResultCacheTest {
+
+    private static final long OLD = 1_000_000_000_000L;
+    private static final String FINGERPRINT = "fingerprint";
+
+    @TempDir
+    private File tmp;
+
+    @Test
+    void changedFileIsNotFormatted() throws IOException {
+        final ResultCache cache = new ResultCache(10);
+        final File file = file("a.xml", "<a/>");
+        cache.recordFormatted(file, FINGERPRINT);
+        assertThat(cache.isFormatted(file, FINGERPRINT), is(true));
+        assertThat(cache.isFormatted(file, "other"), is(false));
+
+        stringToFile("<ab/>", file);
+        assertThat(file.setLastModified(OLD), is(true));
+        assertThat(cache.isFormatted(file, FINGERPRINT), is(false));
+
+        assertThat(file.setLastModified(OLD + 1_000), is(true));
+        stringToFile("<a/>", file);
+        assertThat(file.setLastModified(OLD + 1_000), is(true));
+        assertThat(cache.isFormatted(file, FINGERPRINT), is(false));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() throws IOException {
+        final ResultCache cache = new ResultCache(2);
+        final File first = file("a.xml", "<a/>");
+        final File second = file("b.xml", "<b/>");
+        final File third = file("c.xml", "<c/>");
+        cache.recordFormatted(first, FINGERPRINT);
+        cache.recordFormatted(second, FINGERPRINT);
+        assertThat(cache.isFormatted(first, FINGERPRINT), is(true));
+        cache.recordFormatted(third, FINGERPRINT);
+
+        assertThat(cache.size(), is(2));
+        assertThat(cache.isFormatted(first, FINGERPRINT), is(true));
+        assertThat(cache.isFormatted(second, FINGERPRINT), is(false));
+        assertThat(cache.isFormatted(third, FINGERPRINT), is(true));
+    }
+
+    @Test
+    void recentFileIsNotRecorded() throws IOException {
+        final ResultCache cache = new ResultCache(10);
+        final File file = new File(tmp, "a.xml");
+        stringToFile("<a/>", file);
+        cache.recordFormatted(file, FINGERPRINT);
+        assertThat(cache.size(), is(0));
+        assertThat(cache.isFormatted(file, FINGERPRINT), is(false));
+    }
+
+    @Test
+    void sharedCacheIsResized() throws IOException {
+        final ResultCache cache = ResultCache.shared(1);
+        try {
+            cache.recordFormatted(file("a.xml", "<a/>"), FINGERPRINT);
+            cache.recordFormatted(file("b.xml", "<b/>"), FINGERPRINT);
+            assertThat(cache.size(), is(1));
+            assertThat(ResultCache.shared(ResultCache.DEFAULT_CAPACITY), is(cache));
+        } finally {
+            ResultCache.shared(ResultCache.DEFAULT_CAPACITY);
+        }
+    }
+
+    private File file(final String name, final String content) throws IOException {
+        final File file = new File(tmp, name);
+        stringToFile(content, file);
+        assertThat(file.setLastModified(OLD), is(true));
+        return file;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import static au.com.acegi.xmlformat.TestUtil.stringToFile;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests {@link SharedCache}.
+ */
+public class SharedCacheTest {
+
+    private static final long HOUR_MILLIS = 3_600_000L;
+
+    @TempDir
+    private File tmp;
+
+    @Test
+    void entriesDependOnFormat() throws IOException {
+        final XmlOutputFormat fmt = new XmlOutputFormat();
+        final SharedCache cache = SharedCache.open(tmp, fmt, SharedCache.DEFAULT_CAPACITY);
+        assertThat(cache.isFormatted(42, 10), is(false));
+        cache.recordFormatted(42, 10);
+        cache.recordFormatted(42, 10);
+        assertThat(cache.isFormatted(42, 10), is(true));
+        assertThat(cache.isFormatted(42, 11), is(false));
+        assertThat(cache.isFormatted(43, 10), is(false));
+
+        assertThat(SharedCache.open(tmp, new XmlOutputFormat(), 1).isFormatted(42, 10), is(true));
+        fmt.setIndentSize(7);
+        assertThat(SharedCache.open(tmp, fmt, 1).isFormatted(42, 10), is(false));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() throws IOException {
+        final XmlOutputFormat fmt = new XmlOutputFormat();
+        final SharedCache first = SharedCache.open(tmp, fmt, 2);
+        first.recordFormatted(1, 1);
+        first.recordFormatted(2, 2);
+        first.recordFormatted(3, 3);
+        ageEntries(tmp, 3 * HOUR_MILLIS);
+
+        // Using an entry older than an hour makes it recent again
+        final SharedCache second = SharedCache.open(tmp, fmt, 2);
+        assertThat(second.isFormatted(1, 1), is(true));
+        assertThat(second.evict(), is(0));
+        second.recordFormatted(4, 4);
+        final File stale = new File(tmp, "stale.tmp");
+        stringToFile("", stale);
+        assertThat(stale.setLastModified(System.currentTimeMillis() - 2 * HOUR_MILLIS), is(true));
+        assertThat(second.evict(), is(2));
+
+        assertThat(second.isFormatted(1, 1), is(true));
+        assertThat(second.isFormatted(2, 2), is(false));
+        assertThat(second.isFormatted(3, 3), is(false));
+        assertThat(second.isFormatted(4, 4), is(true));
+        assertThat(stale.exists(), is(false));
+    }
+
+    private static void ageEntries(final File dir, final long millis) {
+        final File[] files = dir.listFiles();
+        assertThat(files == null, is(false));
+        for (final File file : files) {
+            if (file.isDirectory()) {
+                ageEntries(file, millis);
+            } else {
+                assertThat(file.setLastModified(file.lastModified() - millis), is(true));
+            }
+        }
+    }
+}
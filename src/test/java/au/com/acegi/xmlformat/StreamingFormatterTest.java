@@ -0,0 +1,130 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static au.com.acegi.xmlformat.TestUtil.getResource;
+import static au.com.acegi.xmlformat.TestUtil.streamToString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dom4j.DocumentException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link StreamingFormatter} produces the same output as the DOM engine.
+ */
+public class StreamingFormatterTest {
+
+    private static final String[] DOCUMENTS = {
+        "<a/>",
+        "<a></a>",
+        "<a>text</a>",
+        "<a>  padded   text  </a>",
+        "<a> <b/> </a>",
+        "<a>before<b>inner</b>after</a>",
+        "<a> before <b> inner </b> after </a>",
+        "<a>one<!-- c -->two<?pi data?>three</a>",
+        "<a><![CDATA[ <raw> ]]> tail</a>",
+        "<a>\n\n  <b/>\n\n\n  <c>x</c>\n\n</a>",
+        "<a xml:space=\"preserve\">  keep   <b>  this </b>  </a>",
+        "<a xmlns=\"urn:a\" xmlns:p=\"urn:p\"><p:b p:x=\"1\"/><c xmlns=\"urn:c\"><d/></c></a>",
+        "<p:a xmlns:p=\"urn:p\"><p:b xmlns:p=\"urn:q\"/><p:c/></p:a>",
+        "<a b=\"&lt;&amp;&quot;\" c='x'>&lt;tag&gt; &amp; more</a>",
+        "<!-- first --><?pi before?><a/><!-- last -->",
+        "<!DOCTYPE a [<!ENTITY e \"value\">]><!-- c --><a>&e; and &e;</a>",
+        "<!DOCTYPE a SYSTEM \"a.dtd\"><a/>",
+        "<a><b><c><d>deep</d></c></b><b/></a>",
+        "<a>mixed <b>bold</b>, <i>italic</i> and <!-- c --> text</a>",
+        "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?><a>é中</a>",
+    };
+
+    private static final String[] RESOURCES = {"/test1-in.xml", "/test2-in.xml", "/test3-in.xml", "/test4-in.xml",
+        "/test5-in.xml", "/test6-in.xml"};
+
+    @Test
+    void invalidDocumentFails() {
+        final XmlOutputFormat fmt = new XmlOutputFormat();
+        fmt.setEngine(FormatEngine.STREAMING);
+        assertThrows(DocumentException.class, () -> format("<a><b></a>", fmt));
+    }
+
+    @Test
+    void matchesDomEngineForDocuments() throws DocumentException, IOException {
+        for (final String xml : DOCUMENTS) {
+            assertSameOutput(xml);
+        }
+    }
+
+    @Test
+    void matchesDomEngineForResources() throws DocumentException, IOException {
+        for (final String resource : RESOURCES) {
+            try (InputStream in = getResource(resource)) {
+                assertSameOutput(streamToString(in));
+            }
+        }
+    }
+
+    private static void assertSameOutput(final String xml) throws DocumentException, IOException {
+        for (final XmlOutputFormat fmt : formats()) {
+            fmt.setEngine(FormatEngine.DOM);
+            final String expected = format(xml, fmt);
+            fmt.setEngine(FormatEngine.STREAMING);
+            final String received = format(xml, fmt);
+            assertThat(describe(fmt) + "\n" + xml, received, is(expected));
+        }
+    }
+
+    private static String describe(final XmlOutputFormat fmt) {
+        return "trimText=" + fmt.isTrimText() + " padText=" + fmt.isPadText() + " keepBlankLines="
+                + fmt.isKeepBlankLines() + " expandEmptyElements=" + fmt.isExpandEmptyElements() + " newlines="
+                + fmt.isNewlines() + " suppressDeclaration=" + fmt.isSuppressDeclaration();
+    }
+
+    private static String format(final String xml, final XmlOutputFormat fmt)
+            throws DocumentException, IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FormatUtil.format(new ByteArrayInputStream(xml.getBytes(UTF_8)), out, fmt);
+        return new String(out.toByteArray(), UTF_8);
+    }
+
+    private static List<XmlOutputFormat> formats() {
+        final List<XmlOutputFormat> formats = new ArrayList<>();
+        for (int i = 0; i < 1 << 6; i++) {
+            final XmlOutputFormat fmt = new XmlOutputFormat();
+            fmt.setIndentSize(2);
+            fmt.setTrimText((i & 1) != 0);
+            fmt.setPadText((i & 2) != 0);
+            fmt.setKeepBlankLines((i & 4) != 0);
+            fmt.setExpandEmptyElements((i & 8) != 0);
+            fmt.setNewlines((i & 16) == 0);
+            fmt.setSuppressDeclaration((i & 32) != 0);
+            formats.add(fmt);
+        }
+        return formats;
+    }
+}
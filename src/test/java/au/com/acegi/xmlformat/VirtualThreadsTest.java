@@ -0,0 +1,60 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link VirtualThreads}.
+ */
+public class VirtualThreadsTest {
+
+    @Test
+    void executorRunsVirtualThreadsWhenAvailable() throws ExecutionException, InterruptedException,
+            ReflectiveOperationException {
+        final Method isVirtual;
+        try {
+            isVirtual = Thread.class.getMethod("isVirtual");
+        } catch (final NoSuchMethodException ex) {
+            assertThrows(UnsupportedOperationException.class, VirtualThreads::newExecutor);
+            return;
+        }
+
+        final ExecutorService executor;
+        try {
+            executor = VirtualThreads.newExecutor();
+        } catch (final UnsupportedOperationException ex) {
+            // Preview feature of Java 19 and 20, disabled unless the JVM is started with --enable-preview
+            return;
+        }
+        try {
+            final Object virtual = executor.submit(() -> isVirtual.invoke(Thread.currentThread())).get();
+            assertThat(virtual, is(Boolean.TRUE));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -23,9 +23,11 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -35,6 +37,7 @@ import java.io.IOException;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugin.logging.Log;
+import org.dom4j.DocumentException;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -133,6 +136,100 @@ public class XmlCheckPluginTest {
         verify(log, atLeastOnce()).debug(anyString());
     }
 
+    @Test
+    @SuppressWarnings("PMD.JUnitUseExpected")
+    void pluginReportsFormattingNeededInParallel() throws MojoFailureException {
+        final XmlCheckPlugin plugin = new XmlCheckPlugin();
+        plugin.setLog(log);
+        when(log.isDebugEnabled()).thenReturn(true);
+        when(log.isErrorEnabled()).thenReturn(true);
+
+        plugin.setBaseDirectory(proj);
+        plugin.setExcludes("**/" + ERR_FILE_NAME);
+        plugin.setIncludes("**/*.xml");
+        plugin.setTargetDirectory(target);
+        plugin.setThreads("4");
+
+        Assertions.assertThrows(MojoExecutionException.class, () -> {
+            plugin.execute();
+            fail("Should have raised exception when encountering non-formatted file");
+        });
+
+        final File toChange = new File(proj, TO_CHG_FILE_NAME);
+        verify(log, atLeastOnce()).error(startsWith("[xml-check] Needs formatting:" + toChange + " (first difference at"));
+    }
+
+    @Test
+    void pluginSavesCacheOnceWorkersStopped() throws DocumentException, IOException {
+        final XmlCheckPlugin plugin = new XmlCheckPlugin();
+        plugin.setLog(log);
+        // Formatted and scheduled first but reported last, so it is still being checked when a small file stops
+        // processing
+        final File large = new File(proj, "z-large.xml");
+        final StringBuilder xml = new StringBuilder("<xml>");
+        for (int i = 0; i < 200_000; i++) {
+            xml.append("<a b=\"").append(i).append("\"/>");
+        }
+        stringToFile(xml.append("</xml>").toString(), large);
+        FormatUtil.formatInPlace(large, plugin.buildFormatter());
+        addUnformattedFiles(20);
+
+        final File cacheDirectory = new File(target, "xml-format-cache");
+        plugin.setBaseDirectory(proj);
+        plugin.setCacheDirectory(cacheDirectory);
+        plugin.setExcludes("**/" + ERR_FILE_NAME);
+        plugin.setIncludes("**/*.xml");
+        plugin.setMaxViolations(1);
+        plugin.setTargetDirectory(target);
+        plugin.setThreads("4");
+
+        Assertions.assertThrows(MojoExecutionException.class, plugin::execute);
+        verify(log, never()).warn(startsWith("[xml-format] Files still processed"));
+        // The caches were saved once the interrupted file was abandoned, so it cannot be recorded afterwards
+        for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+            assertThat(thread.getName(), thread.getName().startsWith("xml-format-"), is(false));
+        }
+        final FormatCache cache = FormatCache.load(cacheDirectory, proj, plugin.buildFormatter());
+        assertThat(cache.isFormatted("z-large.xml", large), is(false));
+    }
+
+    @Test
+    void pluginStopsAtFirstViolation() {
+        addUnformattedFiles(10);
+        final XmlCheckPlugin plugin = new XmlCheckPlugin();
+        plugin.setLog(log);
+        when(log.isErrorEnabled()).thenReturn(true);
+
+        plugin.setBaseDirectory(proj);
+        plugin.setExcludes("**/" + ERR_FILE_NAME);
+        plugin.setFailFast(true);
+        plugin.setIncludes("**/*.xml");
+        plugin.setTargetDirectory(target);
+
+        Assertions.assertThrows(MojoExecutionException.class, plugin::execute);
+        verify(log).error(startsWith("[xml-check] Needs formatting:"));
+        verify(log).info(startsWith("[xml-format] Stopped after 1 violations, skipping the remaining "));
+    }
+
+    @Test
+    void pluginStopsAfterMaxViolationsInParallel() {
+        addUnformattedFiles(20);
+        final XmlCheckPlugin plugin = new XmlCheckPlugin();
+        plugin.setLog(log);
+        when(log.isErrorEnabled()).thenReturn(true);
+
+        plugin.setBaseDirectory(proj);
+        plugin.setExcludes("**/" + ERR_FILE_NAME);
+        plugin.setIncludes("**/*.xml");
+        plugin.setMaxViolations(3);
+        plugin.setTargetDirectory(target);
+        plugin.setThreads("4");
+
+        Assertions.assertThrows(MojoExecutionException.class, plugin::execute);
+        verify(log, times(3)).error(startsWith("[xml-check] Needs formatting:"));
+        verify(log).info(startsWith("[xml-format] Stopped after 3 violations, skipping the remaining "));
+    }
+
     @Test
     void pluginSucceedsWhenAllFormatted() throws MojoExecutionException, MojoFailureException {
         final XmlCheckPlugin plugin = new XmlCheckPlugin();
@@ -152,6 +249,12 @@ public class XmlCheckPluginTest {
         verify(log, atLeastOnce()).debug(anyString());
     }
 
+    private void addUnformattedFiles(final int count) {
+        for (int i = 0; i < count; i++) {
+            stringToFile(TO_CHG_TXT, new File(proj, "unformatted" + i + ".xml"));
+        }
+    }
+
     private static File newFolder(final File root, final String... subDirs) throws IOException {
         final String subFolder = String.join("/", subDirs);
         final File result = new File(root, subFolder);
@@ -17,6 +17,8 @@
  */
 package au.com.acegi.xmlformat;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import static au.com.acegi.xmlformat.TestUtil.fileToString;
 import static au.com.acegi.xmlformat.TestUtil.stringToFile;
 import static org.hamcrest.CoreMatchers.is;
@@ -25,18 +27,27 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.startsWith;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
 
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -141,6 +152,249 @@ public class XmlFormatPluginTest {
         assertThat(fileToString(error), is(ERR_TXT));
     }
 
+    @Test
+    @SuppressWarnings("PMD.JUnitUseExpected")
+    void pluginReportsErrorInParallel() throws MojoExecutionException {
+        final XmlFormatPlugin plugin = new XmlFormatPlugin();
+        plugin.setLog(log);
+        when(log.isDebugEnabled()).thenReturn(true);
+        when(log.isErrorEnabled()).thenReturn(true);
+
+        plugin.setBaseDirectory(proj);
+        plugin.setIncludes(INCLUDE_ALL_XML);
+        plugin.setTargetDirectory(target);
+        plugin.setThreads("2C");
+
+        Assertions.assertThrows(MojoFailureException.class, () -> {
+            plugin.execute();
+            fail("Should have raised exception when handling error");
+        });
+
+        verify(log, atLeastOnce()).error(anyString(), any(Throwable.class));
+        verify(log, atLeastOnce()).debug(anyString());
+
+        assertThat(fileToString(toChange), not(TO_CHG_TXT));
+        assertThat(fileToString(noChange), is(NO_CHG_TXT));
+        assertThat(fileToString(error), is(ERR_TXT));
+    }
+
+    @Test
+    void pluginReportsErrorOnVirtualThreads() {
+        final XmlFormatPlugin plugin = new XmlFormatPlugin();
+        plugin.setLog(log);
+        when(log.isErrorEnabled()).thenReturn(true);
+
+        plugin.setBaseDirectory(proj);
+        plugin.setIncludes(INCLUDE_ALL_XML);
+        plugin.setTargetDirectory(target);
+        plugin.setVirtualThreads(true);
+
+        Assertions.assertThrows(MojoFailureException.class, plugin::execute);
+        verify(log, atLeastOnce()).error(anyString(), any(Throwable.class));
+        try {
+            VirtualThreads.newExecutor().shutdown();
+        } catch (final UnsupportedOperationException ex) {
+            verify(log).warn("[xml-format] " + ex.getMessage() + ", using 1 platform threads instead");
+        }
+
+        assertThat(fileToString(toChange), not(TO_CHG_TXT));
+        assertThat(fileToString(noChange), is(NO_CHG_TXT));
+        assertThat(fileToString(error), is(ERR_TXT));
+    }
+
+    @Test
+    void pluginProcessesChangedFilesOnly() throws GitAPIException, MojoExecutionException, MojoFailureException {
+        try (Git git = Git.init().setDirectory(proj).call()) {
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("Initial").setSign(false).call();
+        }
+        final File changed = new File(proj, "changed.xml");
+        stringToFile(TO_CHG_TXT, changed);
+
+        final XmlFormatPlugin plugin = new XmlFormatPlugin();
+        plugin.setLog(log);
+
+        plugin.setBaseDirectory(proj);
+        plugin.setChangedSince("HEAD");
+        plugin.setIncludes(INCLUDE_ALL_XML);
+        plugin.setTargetDirectory(target);
+
+        // The committed error file is not even parsed
+        plugin.execute();
+
+        assertThat(fileToString(changed), not(TO_CHG_TXT));
+        assertThat(fileToString(toChange), is(TO_CHG_TXT));
+    }
+
+    @Test
+    void pluginRejectsChangedSinceOutsideRepository() {
+        final XmlFormatPlugin plugin = new XmlFormatPlugin();
+        plugin.setLog(log);
+
+        plugin.setBaseDirectory(proj);
+        plugin.setChangedSince("HEAD");
+        plugin.setIncludes(INCLUDE_ALL_XML);
+        plugin.setTargetDirectory(target);
+
+        Assertions.assertThrows(MojoExecutionException.class, plugin::execute);
+    }
+
+    @Test
+    void pluginRejectsInvalidThreads() {
+        final XmlFormatPlugin plugin = new XmlFormatPlugin();
+        plugin.setLog(log);
+
+        plugin.setBaseDirectory(proj);
+        plugin.setIncludes(INCLUDE_ALL_XML);
+        plugin.setTargetDirectory(target);
+        plugin.setThreads("many");
+
+        Assertions.assertThrows(MojoExecutionException.class, plugin::execute);
+        assertThat(fileToString(toChange), is(TO_CHG_TXT));
+    }
+
+    @Test
+    void pluginFormatsReactor() throws IOException {
+        final File child = new File(proj, "child");
+        final File childTarget = new File(child, "target");
+        assertThat(childTarget.mkdirs(), is(true));
+        final File childChange = new File(child, "child.xml");
+        stringToFile(TO_CHG_TXT, childChange);
+        final File childIgnored = new File(childTarget, "ignored.xml");
+        stringToFile(NO_CHG_TXT, childIgnored);
+
+        final XmlFormatPlugin plugin = new XmlFormatAllPlugin();
+        plugin.setLog(log);
+        when(log.isErrorEnabled()).thenReturn(true);
+
+        plugin.setBaseDirectory(proj);
+        plugin.setIncludes(INCLUDE_ALL_XML);
+        plugin.setReactorProjects(Arrays.asList(project("root", proj, target), project("child", child, childTarget),
+                project("duplicate", proj, target)));
+        plugin.setTargetDirectory(target);
+        plugin.setThreads("2");
+
+        Assertions.assertThrows(MojoFailureException.class, plugin::execute);
+        verify(log).error("[xml-format] Module root: 3 files, 1 needed formatting, 1 errors");
+        verify(log).info("[xml-format] Module child: 1 files, 1 needed formatting, 0 errors");
+        verify(log, never()).info(startsWith("[xml-format] Module duplicate"));
+
+        assertThat(fileToString(toChange), not(TO_CHG_TXT));
+        assertThat(fileToString(childChange), not(TO_CHG_TXT));
+        assertThat(fileToString(noChange), is(NO_CHG_TXT));
+        assertThat(fileToString(childIgnored), is(NO_CHG_TXT));
+    }
+
+    @Test
+    void pluginRemembersFormattedFiles() throws MojoExecutionException, MojoFailureException {
+        final XmlFormatPlugin plugin = new XmlFormatPlugin();
+        plugin.setLog(log);
+
+        assertThat(toChange.setLastModified(1_000_000_000_000L), is(true));
+        plugin.setBaseDirectory(proj);
+        plugin.setIncludes("my.xml");
+        plugin.setTargetDirectory(target);
+
+        plugin.execute();
+        // The file just formatted is too recent to be remembered until it ages
+        assertThat(toChange.setLastModified(1_000_000_000_000L), is(true));
+        plugin.execute();
+        plugin.execute();
+        verify(log, times(2)).info(contains("memory cache 0 hits, 1 misses"));
+        verify(log).info(contains("memory cache 1 hits, 0 misses"));
+
+        plugin.setMemoryCacheSize(0);
+        plugin.execute();
+        verify(log, times(4)).info(startsWith("[xml-format] Processed 1 files"));
+        verify(log, times(3)).info(contains("memory cache"));
+    }
+
+    @Test
+    void pluginKeepsDiskCacheOnMemoryHits() throws MojoExecutionException, MojoFailureException {
+        final File cacheDirectory = new File(target, "xml-format-cache");
+        final XmlFormatPlugin plugin = new XmlFormatPlugin();
+        plugin.setLog(log);
+        when(log.isDebugEnabled()).thenReturn(true);
+
+        plugin.setBaseDirectory(proj);
+        plugin.setCacheDirectory(cacheDirectory);
+        plugin.setIncludes("my.xml");
+        plugin.setTargetDirectory(target);
+        plugin.execute();
+        assertThat(toChange.setLastModified(1_000_000_000_000L), is(true));
+        plugin.execute();
+
+        // A clean build removes the index, while a long-lived process still has the file in memory
+        for (final File index : cacheDirectory.listFiles()) {
+            assertThat(index.delete(), is(true));
+        }
+        plugin.execute();
+        plugin.execute();
+        verify(log, times(2)).info(contains("memory cache 1 hits, 0 misses"));
+
+        plugin.setMemoryCacheSize(0);
+        plugin.execute();
+        verify(log, never()).debug("[xml-format] Unchanged: " + toChange);
+        verify(log, times(4)).debug("[xml-format] Unchanged since last run: " + toChange);
+    }
+
+    @Test
+    void pluginSkipsLargeFiles() throws MojoExecutionException, MojoFailureException {
+        final XmlFormatPlugin plugin = new XmlFormatPlugin();
+        plugin.setLog(log);
+
+        plugin.setBaseDirectory(proj);
+        plugin.setIncludes("my.xml");
+        plugin.setMaxFileSize(TO_CHG_TXT.length() - 1);
+        plugin.setTargetDirectory(target);
+
+        plugin.execute();
+        verify(log).warn("[xml-format] Skipped " + toChange + ": its " + TO_CHG_TXT.length()
+                + " bytes exceed maxFileSize (" + (TO_CHG_TXT.length() - 1) + " bytes)");
+        assertThat(fileToString(toChange), is(TO_CHG_TXT));
+    }
+
+    @Test
+    void pluginReportsFastPath() throws MojoExecutionException, MojoFailureException {
+        final XmlFormatPlugin plugin = new XmlFormatPlugin();
+        plugin.setLog(log);
+        when(log.isDebugEnabled()).thenReturn(true);
+
+        plugin.setBaseDirectory(proj);
+        plugin.setIncludes("my.xml");
+        plugin.setTargetDirectory(target);
+
+        plugin.execute();
+        verify(log).debug("[xml-format] Formatted: " + toChange);
+        verify(log).debug("[xml-format] Fast path proved 0 of 1 files formatted (0%)");
+    }
+
+    @Test
+    void pluginWritesReport() throws IOException, MojoExecutionException, MojoFailureException {
+        final XmlFormatPlugin plugin = new XmlFormatPlugin();
+        plugin.setLog(log);
+        when(log.isDebugEnabled()).thenReturn(true);
+
+        final File report = new File(target, "xml-format-report.csv");
+        plugin.setBaseDirectory(proj);
+        plugin.setExcludes("**/" + ERR_FILE_NAME);
+        plugin.setIncludes(INCLUDE_ALL_XML);
+        plugin.setReportFile(report);
+        plugin.setTargetDirectory(target);
+
+        plugin.execute();
+        verify(log).info(startsWith("[xml-format] Processed 2 files (" + (TO_CHG_TXT.length() + EMPTY_TXT.length())
+                + " bytes) in "));
+        verify(log).debug(startsWith("[xml-format] Time per phase: read "));
+        verify(log).debug(startsWith("[xml-format] Slow file: my.xml ("));
+
+        final List<String> lines = Files.readAllLines(report.toPath(), UTF_8);
+        assertThat(lines.size(), is(3));
+        assertThat(lines.stream().anyMatch(line -> line.startsWith(EMPTY_FILE_NAME + ",0,formatted,")), is(true));
+        assertThat(lines.stream().anyMatch(line -> line.startsWith("my.xml," + TO_CHG_TXT.length() + ",unformatted,")),
+                is(true));
+    }
+
     @Test
     @SuppressWarnings("PMD.JUnitUseExpected")
     void pluginSkipTargetFolder() throws MojoExecutionException, MojoFailureException {
@@ -184,6 +438,83 @@ public class XmlFormatPluginTest {
         assertThat(fileToString(toChange), is(TO_CHG_TXT));
     }
 
+    @Test
+    void pluginSkipsCachedFiles() throws MojoExecutionException, MojoFailureException {
+        final XmlFormatPlugin plugin = new XmlFormatPlugin();
+        plugin.setLog(log);
+        when(log.isDebugEnabled()).thenReturn(true);
+
+        plugin.setBaseDirectory(proj);
+        plugin.setCacheDirectory(new File(target, "xml-format-cache"));
+        plugin.setExcludes("**/" + ERR_FILE_NAME);
+        plugin.setIncludes(INCLUDE_ALL_XML);
+        plugin.setTargetDirectory(target);
+
+        plugin.execute();
+        verify(log).debug("[xml-format] Formatted: " + toChange);
+        verify(log, never()).debug("[xml-format] Unchanged since last run: " + toChange);
+
+        plugin.execute();
+        verify(log).debug("[xml-format] Unchanged since last run: " + toChange);
+        verify(log, never()).debug("[xml-format] Unchanged: " + toChange);
+    }
+
+    @Test
+    void pluginRecordsDurations() throws MojoExecutionException, MojoFailureException {
+        final File cacheDirectory = new File(target, "xml-format-cache");
+        final XmlFormatPlugin plugin = new XmlFormatPlugin();
+        plugin.setLog(log);
+
+        plugin.setBaseDirectory(proj);
+        plugin.setCacheDirectory(cacheDirectory);
+        plugin.setExcludes("**/" + ERR_FILE_NAME);
+        plugin.setIncludes(INCLUDE_ALL_XML);
+        plugin.setTargetDirectory(target);
+        plugin.setThreads("2");
+
+        plugin.execute();
+        final FileDurations durations = FileDurations.load(cacheDirectory);
+        assertThat(durations.estimate(toChange.getName(), 0) > 0, is(true));
+
+        plugin.setSchedule(Schedule.SIZE);
+        plugin.setUseCache(false);
+        stringToFile(TO_CHG_TXT, toChange);
+        plugin.execute();
+        assertThat(fileToString(toChange), not(TO_CHG_TXT));
+    }
+
+    @Test
+    void pluginSharesCacheBetweenCheckouts() throws IOException, MojoExecutionException, MojoFailureException {
+        final XmlFormatPlugin plugin = new XmlFormatPlugin();
+        plugin.setLog(log);
+        when(log.isDebugEnabled()).thenReturn(true);
+
+        plugin.setBaseDirectory(proj);
+        plugin.setExcludes("**/" + ERR_FILE_NAME);
+        plugin.setIncludes(INCLUDE_ALL_XML);
+        plugin.setMemoryCacheSize(0);
+        plugin.setSharedCacheDirectory(new File(tmp, "shared-cache"));
+        plugin.setTargetDirectory(target);
+        plugin.execute();
+        verify(log).debug("[xml-format] Formatted: " + toChange);
+
+        // Another checkout of the formatted file is known by its content alone
+        final File checkout = newFolder(tmp, "checkout");
+        final File copy = new File(checkout, toChange.getName());
+        stringToFile(fileToString(toChange), copy);
+        plugin.setBaseDirectory(checkout);
+        plugin.execute();
+        verify(log).debug("[xml-format] Unchanged since last run: " + copy);
+    }
+
+    private static MavenProject project(final String artifactId, final File basedir, final File target) {
+        final MavenProject project = new MavenProject();
+        project.setArtifactId(artifactId);
+        project.setFile(new File(basedir, "pom.xml"));
+        project.getBuild().setDirectory(target.getPath());
+        return project;
+    }
+
     private static File newFolder(final File root, final String... subDirs) throws IOException {
         final String subFolder = String.join("/", subDirs);
         final File result = new File(root, subFolder);
@@ -0,0 +1,89 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import static au.com.acegi.xmlformat.TestUtil.fileToString;
+import static au.com.acegi.xmlformat.TestUtil.stringToFile;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.maven.plugin.logging.Log;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests {@link XmlWatchPlugin}.
+ */
+public class XmlWatchPluginTest {
+
+    private static final long TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    @TempDir
+    private File tmp;
+
+    @Test
+    void formatsChangedFiles() throws InterruptedException, IOException {
+        final File target = new File(tmp, "target");
+        assertThat(target.mkdir(), is(true));
+        final File existing = new File(tmp, "a.xml");
+        stringToFile("<a> <b/> </a>", existing);
+
+        final Log log = mock(Log.class);
+        final XmlWatchPlugin plugin = new XmlWatchPlugin();
+        plugin.setLog(log);
+        plugin.setBaseDirectory(tmp);
+        plugin.setTargetDirectory(target);
+        plugin.setWatchDebounce(10);
+
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Thread thread = new Thread(() -> {
+            try {
+                plugin.execute();
+            } catch (final Exception ex) {
+                failure.set(ex);
+            }
+        });
+        thread.start();
+        try {
+            verify(log, timeout(TIMEOUT_MILLIS)).info(startsWith("[xml-format] Watching 1 directories"));
+            final String formatted = fileToString(existing);
+
+            stringToFile("<a> <b/> </a>", existing);
+            verify(log, timeout(TIMEOUT_MILLIS)).info(startsWith("[xml-format] Formatted: " + existing));
+            assertThat(fileToString(existing), is(formatted));
+
+            final File created = new File(tmp, "c.xml");
+            stringToFile("<c>   </c>", created);
+            verify(log, timeout(TIMEOUT_MILLIS)).info(startsWith("[xml-format] Formatted: " + created));
+        } finally {
+            thread.interrupt();
+            thread.join(TIMEOUT_MILLIS);
+        }
+        assertThat(thread.isAlive(), is(false));
+        assertThat(failure.get(), is((Throwable) null));
+    }
+}
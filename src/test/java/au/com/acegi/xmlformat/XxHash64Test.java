@@ -0,0 +1,69 @@
+/*
+ * XML Format Maven Plugin (https://github.com/acegi/xml-format-maven-plugin)
+ *
+ * Copyright 2011-2025 Acegi Technology Pty Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.com.acegi.xmlformat;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link XxHash64}.
+ */
+public class XxHash64Test {
+
+    @Test
+    void knownValues() {
+        assertThat(hash(""), is(0xEF46DB3751D8E999L));
+        assertThat(hash("abc"), is(0x44BC2CF5AD770999L));
+        assertThat(hash("Nobody inspects the spammish repetition"), is(0xFBCEA83C8A378BF1L));
+
+        final byte[] content = new byte[1_027];
+        for (int i = 0; i < 1_024; i++) {
+            content[i] = (byte) i;
+        }
+        System.arraycopy("xyz".getBytes(US_ASCII), 0, content, 1_024, 3);
+        assertThat(ContentHash.XXHASH64.hash(ByteBuffer.wrap(content)), is(0xE146CB31B65BC21AL));
+    }
+
+    @Test
+    void chunkingDoesNotMatter() {
+        final byte[] content = new byte[300];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 31);
+        }
+        final long expected = ContentHash.XXHASH64.hash(ByteBuffer.wrap(content));
+        for (int chunk = 1; chunk <= 70; chunk++) {
+            final XxHash64 hasher = new XxHash64();
+            for (int offset = 0; offset < content.length; offset += chunk) {
+                final ByteBuffer data = ByteBuffer.wrap(content, offset, Math.min(chunk, content.length - offset));
+                hasher.update(data);
+                assertThat(data.hasRemaining(), is(false));
+            }
+            assertThat(hasher.getValue(), is(expected));
+        }
+    }
+
+    private static long hash(final String text) {
+        return ContentHash.XXHASH64.hash(ByteBuffer.wrap(text.getBytes(US_ASCII)));
+    }
+}